@@ -0,0 +1,22 @@
+package com.java8_for_the_really_impatient;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks matching the given regex (all of them by default) with the GC
+ * profiler, so allocation rates are reported next to the scores.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String... args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : "com\\.java8_for_the_really_impatient\\..*Benchmark")
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
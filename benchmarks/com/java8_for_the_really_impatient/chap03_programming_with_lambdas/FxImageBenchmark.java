@@ -0,0 +1,68 @@
+package com.java8_for_the_really_impatient.chap03_programming_with_lambdas;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * The {@code Image}-based entry points, {@code transform} and {@code LatentImage.toImage}.
+ *
+ * Unlike the other benchmarks these create {@code WritableImage}s, so they need a JavaFX
+ * toolkit; on a server run them with the Monocle headless platform
+ * ({@code -Dglass.platform=Monocle -Dmonocle.platform=Headless -Dprism.order=sw}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FxImageBenchmark {
+
+    @Param({"512", "2048"})
+    int size;
+
+    @Param({"1", "4"})
+    int chainLength;
+
+    private Image image;
+    private List<UnaryOperator<Color>> stages;
+    private UnaryOperator<Color> chain;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        image = ProgrammingWithLambdas.toImage(SyntheticImages.argb(size, size), size, size);
+        stages = SyntheticImages.colorStages(chainLength);
+        chain = SyntheticImages.colorChain(chainLength);
+    }
+
+    @Benchmark
+    public Image transform() {
+        return ProgrammingWithLambdas.transform(image, chain);
+    }
+
+    @Benchmark
+    public Image latentImage() {
+        ProgrammingWithLambdas.LatentImage latent = new ProgrammingWithLambdas.LatentImage().from(image);
+        for (UnaryOperator<Color> stage : stages) {
+            latent.transform(stage);
+        }
+        return latent.toImage();
+    }
+}
@@ -0,0 +1,89 @@
+package com.java8_for_the_really_impatient.chap03_programming_with_lambdas;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javafx.scene.paint.Color;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@code compose} chains over single colors and {@code repeat} versus {@code repeat2}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LambdaUtilitiesBenchmark {
+
+    private static final int PIXELS = 1024;
+
+    @Param({"1", "4", "16"})
+    int chainLength;
+
+    @Param({"100", "10000"})
+    int repetitions;
+
+    private Color[] colors;
+    private int[] argb;
+    private UnaryOperator<Color> composed;
+    private IntUnaryOperator packed;
+    private IntUnaryOperator compiled;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        colors = SyntheticImages.colors(PIXELS, 1)[0];
+        argb = SyntheticImages.argb(PIXELS, 1);
+        composed = SyntheticImages.colorChain(chainLength);
+        packed = SyntheticImages.argbChain(chainLength);
+        // brighter's lift of black keeps these chains off the cube's bound; time its lookup anyway
+        compiled = ColorLuts.compile(packed, 2).orElseGet(() -> ColorLuts.cube(packed, ColorLuts.DEFAULT_CUBE_STEP));
+    }
+
+    @Benchmark
+    public void composeColor(Blackhole bh) {
+        for (Color c : colors) {
+            bh.consume(composed.apply(c));
+        }
+    }
+
+    @Benchmark
+    public void composePacked(Blackhole bh) {
+        for (int c : argb) {
+            bh.consume(packed.applyAsInt(c));
+        }
+    }
+
+    @Benchmark
+    public void composeCompiled(Blackhole bh) {
+        for (int c : argb) {
+            bh.consume(compiled.applyAsInt(c));
+        }
+    }
+
+    @Benchmark
+    public void repeatRunnable(Blackhole bh) {
+        int[] counter = new int[1];
+        ProgrammingWithLambdas.repeat(repetitions, () -> bh.consume(counter[0]++));
+    }
+
+    @Benchmark
+    public void repeatIntConsumer(Blackhole bh) {
+        ProgrammingWithLambdas.repeat2(repetitions, bh::consume);
+    }
+}
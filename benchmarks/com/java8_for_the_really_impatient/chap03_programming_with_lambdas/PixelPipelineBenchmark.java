@@ -0,0 +1,108 @@
+package com.java8_for_the_really_impatient.chap03_programming_with_lambdas;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javafx.scene.paint.Color;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+import java.util.function.UnaryOperator;
+
+/**
+ * Whole-image transforms across image sizes, operator-chain lengths and thread counts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PixelPipelineBenchmark {
+
+    @Param({"512", "2048", "4096"})
+    int size;
+
+    @Param({"1", "4", "8"})
+    int chainLength;
+
+    @Param({"1", "4", "8"})
+    int threads;
+
+    private ForkJoinPool pool;
+    private TiledTransformEngine engine;
+    private int[] argb;
+    private int[] argbOut;
+    private Color[][] colors;
+    private Color[][] colorsOut;
+    private UnaryOperator<Color> colorChain;
+    private IntUnaryOperator[] argbStages;
+    private IntUnaryOperator argbChain;
+    private IntUnaryOperator compiledChain;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = new ForkJoinPool(threads);
+        engine = new TiledTransformEngine(pool, TiledTransformEngine.DEFAULT_TILE_PIXELS);
+        argb = SyntheticImages.argb(size, size);
+        argbOut = new int[argb.length];
+        colors = SyntheticImages.colors(size, size);
+        colorsOut = new Color[size][size];
+        colorChain = SyntheticImages.colorChain(chainLength);
+        argbStages = SyntheticImages.argbStages(chainLength);
+        argbChain = SyntheticImages.argbChain(chainLength);
+        // brighter's lift of black keeps these chains off the cube's bound; time its lookup anyway
+        compiledChain = ColorLuts.compile(argbChain, 2).orElseGet(() -> ColorLuts.cube(argbChain, ColorLuts.DEFAULT_CUBE_STEP));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * The public entry point; it runs on the common pool, whose size is fixed per JVM,
+     * so its result does not depend on {@code threads}.
+     */
+    @Benchmark
+    public Color[][] parallelTransform() {
+        return ProgrammingWithLambdas.parallelTransform(colors, colorChain);
+    }
+
+    /** The engine behind {@code parallelTransform}, on a pool of {@code threads} workers. */
+    @Benchmark
+    public Color[][] tiledColors() {
+        return engine.transform(colors, colorsOut, colorChain).join();
+    }
+
+    @Benchmark
+    public int[] packedTiled() {
+        return engine.transform(argb, argbOut, size, argbChain).join();
+    }
+
+    @Benchmark
+    public int[] packedLatentImage() {
+        PackedLatentImage latent = PackedLatentImage.from(argb, size, size);
+        for (IntUnaryOperator stage : argbStages) {
+            latent.transform(stage);
+        }
+        return latent.toArgbAsync(argbOut, engine).join();
+    }
+
+    @Benchmark
+    public int[] packedCompiledLut() {
+        return engine.transform(argb, argbOut, size, compiledChain).join();
+    }
+}
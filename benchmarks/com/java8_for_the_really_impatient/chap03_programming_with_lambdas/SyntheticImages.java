@@ -0,0 +1,92 @@
+package com.java8_for_the_really_impatient.chap03_programming_with_lambdas;
+
+import javafx.scene.paint.Color;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.IntUnaryOperator;
+import java.util.function.UnaryOperator;
+
+/**
+ * Deterministic inputs for the benchmarks; nothing here needs a JavaFX toolkit.
+ */
+final class SyntheticImages {
+
+    private static final long SEED = 42L;
+
+    private SyntheticImages() {}
+
+    static int[] argb(int width, int height) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xff000000 | random.nextInt(1 << 24);
+        }
+        return pixels;
+    }
+
+    static Color[][] colors(int width, int height) {
+        int[] pixels = argb(width, height);
+        Color[][] colors = new Color[height][width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int argb = pixels[y * width + x];
+                colors[y][x] = Color.rgb(Argb.red(argb), Argb.green(argb), Argb.blue(argb), 1.0);
+            }
+        }
+        return colors;
+    }
+
+    /** brighter, grayscale, brighten(1.2), darker, ... repeated up to {@code length}. */
+    static List<UnaryOperator<Color>> colorStages(int length) {
+        List<UnaryOperator<Color>> stages = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            stages.add(colorStage(i));
+        }
+        return stages;
+    }
+
+    static UnaryOperator<Color> colorChain(int length) {
+        UnaryOperator<Color> chain = UnaryOperator.identity();
+        for (UnaryOperator<Color> stage : colorStages(length)) {
+            chain = ProgrammingWithLambdas.compose(chain, stage);
+        }
+        return chain;
+    }
+
+    /** The packed counterparts of {@link #colorStages}. */
+    static IntUnaryOperator[] argbStages(int length) {
+        IntUnaryOperator[] stages = new IntUnaryOperator[length];
+        for (int i = 0; i < length; i++) {
+            stages[i] = argbStage(i);
+        }
+        return stages;
+    }
+
+    static IntUnaryOperator argbChain(int length) {
+        IntUnaryOperator chain = IntUnaryOperator.identity();
+        for (IntUnaryOperator stage : argbStages(length)) {
+            chain = chain.andThen(stage);
+        }
+        return chain;
+    }
+
+    private static UnaryOperator<Color> colorStage(int i) {
+        switch (i % 4) {
+            case 0: return Color::brighter;
+            case 1: return Color::grayscale;
+            case 2: return ProgrammingWithLambdas.brighten(1.2);
+            default: return Color::darker;
+        }
+    }
+
+    private static IntUnaryOperator argbStage(int i) {
+        switch (i % 4) {
+            case 0: return Argb.brighter();
+            case 1: return Argb.grayscale();
+            case 2: return Argb.brighten(1.2);
+            default: return Argb.darker();
+        }
+    }
+}
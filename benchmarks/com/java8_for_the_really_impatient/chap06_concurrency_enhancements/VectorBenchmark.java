@@ -0,0 +1,129 @@
+package com.java8_for_the_really_impatient.chap06_concurrency_enhancements;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * {@code ConcurrencyEnhancements.Vector} against the JDK's thread-safe lists, with
+ * three readers per writer, and with readers only.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class VectorBenchmark {
+
+    private interface IndexedList {
+        Object get(int n);
+        void set(int n, Object element);
+    }
+
+    @Param({"stamped", "copyOnWrite", "synchronized", "readWriteLock"})
+    String implementation;
+
+    @Param({"1000"})
+    int size;
+
+    private IndexedList list;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (implementation) {
+            case "stamped": list = stamped(); break;
+            case "copyOnWrite": list = wrap(new CopyOnWriteArrayList<>()); break;
+            case "synchronized": list = wrap(Collections.synchronizedList(new ArrayList<>())); break;
+            case "readWriteLock": list = readWriteLocked(); break;
+            default: throw new IllegalArgumentException(implementation);
+        }
+        for (int i = 0; i < size; i++) {
+            list.set(i, i); // appends, since i is the current size
+        }
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(3)
+    public Object reader() {
+        return list.get(ThreadLocalRandom.current().nextInt(size));
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(1)
+    public void writer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        list.set(random.nextInt(size), random.nextInt());
+    }
+
+    @Benchmark
+    @Group("readOnly")
+    @GroupThreads(4)
+    public Object readOnly() {
+        return list.get(ThreadLocalRandom.current().nextInt(size));
+    }
+
+    private static IndexedList stamped() {
+        ConcurrencyEnhancements.Vector<Object> vector = new ConcurrencyEnhancements.Vector<>();
+        return new IndexedList() {
+            public Object get(int n) { return vector.get(n); }
+            public void set(int n, Object element) {
+                if (n == vector.size()) vector.add(element); else vector.set(n, element);
+            }
+        };
+    }
+
+    private static IndexedList wrap(List<Object> list) {
+        return new IndexedList() {
+            public Object get(int n) { return list.get(n); }
+            public void set(int n, Object element) {
+                if (n == list.size()) list.add(element); else list.set(n, element);
+            }
+        };
+    }
+
+    private static IndexedList readWriteLocked() {
+        List<Object> list = new ArrayList<>();
+        ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        return new IndexedList() {
+            public Object get(int n) {
+                lock.readLock().lock();
+                try {
+                    return list.get(n);
+                } finally {
+                    lock.readLock().unlock();
+                }
+            }
+
+            public void set(int n, Object element) {
+                lock.writeLock().lock();
+                try {
+                    if (n == list.size()) list.add(element); else list.set(n, element);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        };
+    }
+}
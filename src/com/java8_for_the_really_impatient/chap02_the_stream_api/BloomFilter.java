@@ -0,0 +1,131 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * A fixed-size, thread-safe Bloom filter, for an approximate {@code distinct()} whose
+ * memory does not grow with the number of unique elements.
+ *
+ * {@link #distinct(Stream, long, double)} drops an element once every one of its
+ * bits is set, so a new element is wrongly dropped with about the configured
+ * false-positive rate (which rises once more than the expected number of elements
+ * have been added); a repeated one is never let through, except that in a parallel
+ * stream two copies arriving at the same moment may both be.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+
+    public BloomFilter(long bits, int hashes) {
+        if (bits < 64 || bits > (long) Integer.MAX_VALUE << 6) {
+            throw new IllegalArgumentException("Invalid bit count: " + bits);
+        }
+        if (hashes < 1 || hashes > 32) {
+            throw new IllegalArgumentException("Invalid hash count: " + hashes);
+        }
+        this.words = new AtomicLongArray((int) ((bits + 63) >>> 6));
+        this.bits = (long) words.length() << 6;
+        this.hashes = hashes;
+    }
+
+    /**
+     * The smallest filter with at most {@code falsePositiveRate} after
+     * {@code expectedInsertions} elements.
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1) {
+            throw new IllegalArgumentException("Invalid expected insertions: " + expectedInsertions);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("Invalid false-positive rate: " + falsePositiveRate);
+        }
+        double ln2 = Math.log(2);
+        long bits = Math.max(64, (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2)));
+        int hashes = (int) Math.max(1, Math.min(32, Math.round((double) bits / expectedInsertions * ln2)));
+        return new BloomFilter(bits, hashes);
+    }
+
+    /**
+     * Strings are hashed by their characters, other elements by {@code hashCode()}.
+     */
+    public static <T> Stream<T> distinct(Stream<T> stream, long expectedInsertions, double falsePositiveRate) {
+        BloomFilter filter = create(expectedInsertions, falsePositiveRate);
+        return stream.filter(filter::put);
+    }
+
+    public static <T> Stream<T> distinct(Stream<T> stream, long expectedInsertions, double falsePositiveRate,
+                                         ToLongFunction<? super T> hash) {
+        BloomFilter filter = create(expectedInsertions, falsePositiveRate);
+        return stream.filter(t -> filter.putHash(hash.applyAsLong(t)));
+    }
+
+    /**
+     * Adds {@code o}, returning false if it (or a false positive) was already there.
+     */
+    public boolean put(Object o) {
+        return putHash(Hashes.hash64(o));
+    }
+
+    public boolean putHash(long hash) {
+        long h1 = hash;
+        long h2 = Hashes.mix(hash) | 1;
+        boolean changed = false;
+        for (int i = 0; i < hashes; i++) {
+            changed |= set(Long.remainderUnsigned(h1 + i * h2, bits));
+        }
+        return changed;
+    }
+
+    public boolean mightContain(Object o) {
+        return mightContainHash(Hashes.hash64(o));
+    }
+
+    public boolean mightContainHash(long hash) {
+        long h1 = hash;
+        long h2 = Hashes.mix(hash) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Adds every element of {@code other}, which must have the same size and hash count.
+     */
+    public BloomFilter merge(BloomFilter other) {
+        if (other.bits != bits || other.hashes != hashes) {
+            throw new IllegalArgumentException("Incompatible filters");
+        }
+        for (int i = 0; i < words.length(); i++) {
+            long mask = other.words.get(i);
+            long word;
+            do {
+                word = words.get(i);
+            } while ((word | mask) != word && !words.compareAndSet(i, word, word | mask));
+        }
+        return this;
+    }
+
+    public long bitSize() {
+        return bits;
+    }
+
+    public int hashCount() {
+        return hashes;
+    }
+
+    private boolean set(long bit) {
+        int index = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        while (true) {
+            long word = words.get(index);
+            if ((word & mask) != 0) return false;
+            if (words.compareAndSet(index, word, word | mask)) return true;
+        }
+    }
+}
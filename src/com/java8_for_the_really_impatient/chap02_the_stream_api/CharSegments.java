@@ -0,0 +1,47 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Joined text held as a list of {@code char} chunks rather than one {@code String}.
+ * Two segments concatenate by linking their chunk lists, without copying, which is
+ * how {@link SinkCollectors} keeps parallel splits in encounter order.
+ */
+public class CharSegments extends ChunkedText {
+
+    private final List<char[]> chunks = new ArrayList<>();
+    private final List<Integer> counts = new ArrayList<>();
+
+    @Override
+    char[] emit(char[] chunk, int count) {
+        chunks.add(chunk);
+        counts.add(count);
+        return new char[CHUNK_CHARS];
+    }
+
+    /** Appends {@code other}, separated by {@code delimiter} if both are non-empty. */
+    CharSegments merge(CharSegments other, CharSequence delimiter) {
+        if (!other.started) return this;
+        if (started) {
+            append(delimiter);
+        }
+        flushChunk();
+        other.flushChunk();
+        chunks.addAll(other.chunks);
+        counts.addAll(other.counts);
+        length += other.length;
+        started = true;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder((int) Math.min(Integer.MAX_VALUE - 8, length));
+        flushChunk();
+        for (int i = 0; i < chunks.size(); i++) {
+            s.append(chunks.get(i), 0, counts.get(i));
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,191 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.stream.Collector;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Unboxed alternatives to {@code characterStream(String)}: char and code point
+ * streams over any {@link CharSequence} that split by index for parallel streams,
+ * and histogram collectors that count characters straight into primitive arrays.
+ */
+public final class CharStreams {
+
+    private CharStreams() {}
+
+    public static IntStream chars(CharSequence s) {
+        return StreamSupport.intStream(new CharSpliterator(s, 0, s.length()), false);
+    }
+
+    public static IntStream codePoints(CharSequence s) {
+        return StreamSupport.intStream(new CodePointSpliterator(s, 0, s.length()), false);
+    }
+
+    /**
+     * Same as {@code words.flatMap(w -> characterStream(w))}, without the boxing.
+     */
+    public static IntStream chars(Stream<? extends CharSequence> words) {
+        return words.flatMapToInt(CharStreams::chars);
+    }
+
+    /**
+     * Counts the chars below {@code alphabetSize}, indexed by char value; other chars
+     * are ignored.
+     */
+    public static Collector<CharSequence, ?, long[]> charHistogram(int alphabetSize) {
+        return Collector.of(
+                () -> new long[alphabetSize],
+                (counts, s) -> {
+                    for (int i = 0, n = s.length(); i < n; i++) {
+                        char c = s.charAt(i);
+                        if (c < alphabetSize) counts[c]++;
+                    }
+                },
+                CharStreams::merge,
+                Collector.Characteristics.IDENTITY_FINISH, Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Counts the ASCII letters {@code a} to {@code z}, ignoring case; index 0 is 'a'.
+     */
+    public static Collector<CharSequence, ?, long[]> letterHistogram() {
+        return Collector.of(
+                () -> new long[26],
+                (counts, s) -> {
+                    for (int i = 0, n = s.length(); i < n; i++) {
+                        int letter = (s.charAt(i) | 0x20) - 'a';
+                        if (letter >= 0 && letter < 26) counts[letter]++;
+                    }
+                },
+                CharStreams::merge,
+                Collector.Characteristics.IDENTITY_FINISH, Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Counts the values in {@code [0, bins)}; other values are ignored.
+     */
+    public static long[] histogram(IntStream values, int bins) {
+        return values.collect(
+                () -> new long[bins],
+                (counts, v) -> {
+                    if (v >= 0 && v < bins) counts[v]++;
+                },
+                CharStreams::merge);
+    }
+
+    private static long[] merge(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i++) {
+            a[i] += b[i];
+        }
+        return a;
+    }
+
+    private static class CharSpliterator implements Spliterator.OfInt {
+        private final CharSequence s;
+        private int index;
+        private final int fence;
+
+        CharSpliterator(CharSequence s, int origin, int fence) {
+            this.s = s;
+            this.index = origin;
+            this.fence = fence;
+        }
+
+        @Override
+        public OfInt trySplit() {
+            int mid = (index + fence) >>> 1;
+            return mid <= index ? null : new CharSpliterator(s, index, index = mid);
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (index >= fence) return false;
+            action.accept(s.charAt(index++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            for (int i = index; i < fence; i++) {
+                action.accept(s.charAt(i));
+            }
+            index = fence;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED;
+        }
+    }
+
+    private static class CodePointSpliterator implements Spliterator.OfInt {
+        private final CharSequence s;
+        private int index;
+        private final int fence;
+
+        CodePointSpliterator(CharSequence s, int origin, int fence) {
+            this.s = s;
+            this.index = origin;
+            this.fence = fence;
+        }
+
+        @Override
+        public OfInt trySplit() {
+            int mid = (index + fence) >>> 1;
+            if (mid > index && Character.isLowSurrogate(s.charAt(mid)) && Character.isHighSurrogate(s.charAt(mid - 1))) {
+                mid++;
+            }
+            return mid <= index || mid >= fence ? null : new CodePointSpliterator(s, index, index = mid);
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (index >= fence) return false;
+            int codePoint = codePointAt(index);
+            index += Character.charCount(codePoint);
+            action.accept(codePoint);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            int i = index;
+            while (i < fence) {
+                int codePoint = codePointAt(i);
+                i += Character.charCount(codePoint);
+                action.accept(codePoint);
+            }
+            index = fence;
+        }
+
+        // a high surrogate at the fence is returned unpaired, as String.codePoints() does
+        private int codePointAt(int i) {
+            char high = s.charAt(i);
+            if (Character.isHighSurrogate(high) && i + 1 < fence) {
+                char low = s.charAt(i + 1);
+                if (Character.isLowSurrogate(low)) {
+                    return Character.toCodePoint(high, low);
+                }
+            }
+            return high;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED;
+        }
+    }
+}
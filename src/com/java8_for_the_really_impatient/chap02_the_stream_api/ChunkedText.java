@@ -0,0 +1,72 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+/**
+ * Delimited text appended into fixed-size {@code char} chunks, each handed to
+ * {@link #emit} when full. A surrogate pair is never split across two chunks, so
+ * every chunk encodes on its own.
+ */
+abstract class ChunkedText {
+
+    static final int CHUNK_CHARS = 8192;
+
+    private char[] chunk = new char[CHUNK_CHARS];
+    private int count;
+    long length;
+    boolean started;
+
+    /**
+     * Takes a full (or final) chunk and returns the array to continue in, which may be
+     * the same one.
+     */
+    abstract char[] emit(char[] chunk, int count);
+
+    void appendElement(CharSequence delimiter, CharSequence element) {
+        if (started) {
+            append(delimiter);
+        }
+        started = true;
+        append(element);
+    }
+
+    void append(CharSequence s) {
+        int n = s.length();
+        for (int i = 0; i < n; ) {
+            if (count == chunk.length) nextChunk();
+            int k = Math.min(n - i, chunk.length - count);
+            if (s instanceof String) {
+                ((String) s).getChars(i, i + k, chunk, count);
+            } else {
+                for (int j = 0; j < k; j++) {
+                    chunk[count + j] = s.charAt(i + j);
+                }
+            }
+            count += k;
+            i += k;
+        }
+        length += n;
+    }
+
+    /** Emits the partly filled chunk, if any. */
+    void flushChunk() {
+        if (count > 0) {
+            chunk = emit(chunk, count);
+            count = 0;
+        }
+    }
+
+    public long length() {
+        return length;
+    }
+
+    private void nextChunk() {
+        char last = chunk[count - 1];
+        if (Character.isHighSurrogate(last) && count > 1) {
+            chunk = emit(chunk, count - 1);
+            chunk[0] = last;
+            count = 1;
+        } else {
+            chunk = emit(chunk, count);
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * City rows stored column by column: state and name as dictionary codes, population
+ * as an {@code int}. Three {@code int}s per row replace a {@code City} object and its
+ * string references, and the scans below read only the columns they need, in
+ * parallel over row ranges.
+ */
+public class CityTable extends ColumnarTable {
+
+    private final StringDictionary states = new StringDictionary();
+    private final StringDictionary names = new StringDictionary();
+    private int[] stateCodes = new int[0];
+    private int[] nameCodes = new int[0];
+    private int[] populations = new int[0];
+
+    static CityTable of(Collection<StreamAPI.City> cities) {
+        CityTable table = new CityTable();
+        for (StreamAPI.City city : cities) {
+            table.add(city.getState(), city.getName(), city.getPopulation());
+        }
+        return table;
+    }
+
+    public void add(String state, String name, int population) {
+        if (rows == populations.length) {
+            int capacity = grownCapacity(rows);
+            stateCodes = Arrays.copyOf(stateCodes, capacity);
+            nameCodes = Arrays.copyOf(nameCodes, capacity);
+            populations = Arrays.copyOf(populations, capacity);
+        }
+        stateCodes[rows] = states.encode(state);
+        nameCodes[rows] = names.encode(name);
+        populations[rows] = population;
+        rows++;
+    }
+
+    public String getState(int row) {
+        return states.decode(stateCodes[checkRow(row)]);
+    }
+
+    public String getName(int row) {
+        return names.decode(nameCodes[checkRow(row)]);
+    }
+
+    public int getPopulation(int row) {
+        return populations[checkRow(row)];
+    }
+
+    public long sumPopulation() {
+        int[] populations = this.populations;
+        return sum((from, to) -> {
+            long sum = 0;
+            for (int i = from; i < to; i++) {
+                sum += populations[i];
+            }
+            return sum;
+        });
+    }
+
+    public long sumPopulation(String state) {
+        int code = states.lookup(state);
+        if (code < 0) return 0;
+        int[] stateCodes = this.stateCodes;
+        int[] populations = this.populations;
+        return sum((from, to) -> {
+            long sum = 0;
+            for (int i = from; i < to; i++) {
+                if (stateCodes[i] == code) sum += populations[i];
+            }
+            return sum;
+        });
+    }
+
+    public long countWherePopulation(IntPredicate predicate) {
+        int[] populations = this.populations;
+        return sum((from, to) -> {
+            long count = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(populations[i])) count++;
+            }
+            return count;
+        });
+    }
+
+    /** Like {@code groupingBy(City::getState, summingInt(City::getPopulation))}. */
+    public Map<String, Long> populationByState() {
+        int[] stateCodes = this.stateCodes;
+        int[] populations = this.populations;
+        return decode(groupSum(states.size(), (sums, from, to) -> {
+            for (int i = from; i < to; i++) {
+                sums.add(stateCodes[i], populations[i]);
+            }
+        }), states);
+    }
+
+    /** Like {@code groupingBy(City::getState, counting())}. */
+    public Map<String, Long> countByState() {
+        int[] stateCodes = this.stateCodes;
+        return decode(groupSum(states.size(), (sums, from, to) -> {
+            for (int i = from; i < to; i++) {
+                sums.add(stateCodes[i], 1);
+            }
+        }), states);
+    }
+}
@@ -0,0 +1,177 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Row bookkeeping and parallel row-range scans shared by the columnar tables. Each
+ * scan works on ranges of {@value #RANGE_ROWS} rows, reading the primitive columns
+ * sequentially inside a range.
+ *
+ * Grouped scans total each range into a dense array when there are at most
+ * {@value #RANGE_ROWS} groups; with more, a range can only touch a fraction of them,
+ * so it totals into a small hash table instead and the tables are added up at the end.
+ */
+abstract class ColumnarTable {
+
+    static final int RANGE_ROWS = 1 << 14;
+
+    @FunctionalInterface
+    interface RangeSum {
+        long sum(int from, int to);
+    }
+
+    @FunctionalInterface
+    interface RangeGroupSum {
+        void sum(GroupSums sums, int from, int to);
+    }
+
+    /** The running totals of one range, by group code. */
+    abstract static class GroupSums {
+        abstract void add(int group, long delta);
+
+        abstract void addTo(long[] totals);
+    }
+
+    int rows;
+
+    public int size() {
+        return rows;
+    }
+
+    int checkRow(int row) {
+        if (row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", size: " + rows);
+        }
+        return row;
+    }
+
+    static int grownCapacity(int capacity) {
+        return Math.max(16, capacity + (capacity >> 1));
+    }
+
+    long sum(RangeSum scan) {
+        return ranges().mapToLong(r -> scan.sum(rangeStart(r), rangeEnd(r))).sum();
+    }
+
+    long[] groupSum(int groups, RangeGroupSum scan) {
+        if (groups <= RANGE_ROWS) {
+            return ranges().mapToObj(r -> {
+                DenseSums sums = new DenseSums(groups);
+                scan.sum(sums, rangeStart(r), rangeEnd(r));
+                return sums.sums;
+            }).reduce((a, b) -> {
+                for (int i = 0; i < a.length; i++) {
+                    a[i] += b[i];
+                }
+                return a;
+            }).orElseGet(() -> new long[groups]);
+        }
+        List<SparseSums> ranges = ranges().mapToObj(r -> {
+            SparseSums sums = new SparseSums();
+            scan.sum(sums, rangeStart(r), rangeEnd(r));
+            return sums;
+        }).collect(Collectors.toList());
+        long[] totals = new long[groups];
+        for (SparseSums sums : ranges) {
+            sums.addTo(totals);
+        }
+        return totals;
+    }
+
+    static Map<String, Long> decode(long[] sums, StringDictionary dictionary) {
+        Map<String, Long> map = new HashMap<>();
+        for (int code = 0; code < sums.length; code++) {
+            map.put(dictionary.decode(code), sums[code]);
+        }
+        return map;
+    }
+
+    private IntStream ranges() {
+        return IntStream.range(0, (int) ((rows + (long) RANGE_ROWS - 1) / RANGE_ROWS)).parallel();
+    }
+
+    private static int rangeStart(int range) {
+        return (int) ((long) range * RANGE_ROWS);
+    }
+
+    private int rangeEnd(int range) {
+        return (int) Math.min(rows, (range + 1L) * RANGE_ROWS);
+    }
+
+    private static final class DenseSums extends GroupSums {
+        final long[] sums;
+
+        DenseSums(int groups) {
+            this.sums = new long[groups];
+        }
+
+        @Override
+        void add(int group, long delta) {
+            sums[group] += delta;
+        }
+
+        @Override
+        void addTo(long[] totals) {
+            for (int i = 0; i < sums.length; i++) {
+                totals[i] += sums[i];
+            }
+        }
+    }
+
+    /** Open addressing on the group code; -1 marks an empty slot. */
+    private static final class SparseSums extends GroupSums {
+        private int[] groups = filled(64);
+        private long[] sums = new long[64];
+        private int size;
+
+        @Override
+        void add(int group, long delta) {
+            int mask = groups.length - 1;
+            int h = group * 0x9E3779B9;
+            int i = (h ^ (h >>> 16)) & mask;
+            while (groups[i] != group) {
+                if (groups[i] < 0) {
+                    if (2 * (size + 1) > groups.length) {
+                        grow();
+                        add(group, delta);
+                        return;
+                    }
+                    groups[i] = group;
+                    size++;
+                    break;
+                }
+                i = (i + 1) & mask;
+            }
+            sums[i] += delta;
+        }
+
+        @Override
+        void addTo(long[] totals) {
+            for (int i = 0; i < groups.length; i++) {
+                if (groups[i] >= 0) totals[groups[i]] += sums[i];
+            }
+        }
+
+        private void grow() {
+            int[] oldGroups = groups;
+            long[] oldSums = sums;
+            groups = filled(oldGroups.length * 2);
+            sums = new long[oldGroups.length * 2];
+            size = 0;
+            for (int i = 0; i < oldGroups.length; i++) {
+                if (oldGroups[i] >= 0) add(oldGroups[i], oldSums[i]);
+            }
+        }
+
+        private static int[] filled(int capacity) {
+            int[] groups = new int[capacity];
+            Arrays.fill(groups, -1);
+            return groups;
+        }
+    }
+}
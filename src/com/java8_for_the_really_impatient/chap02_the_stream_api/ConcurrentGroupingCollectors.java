@@ -0,0 +1,172 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * Drop-in replacements for {@code Collectors.groupingByConcurrent} for low-cardinality
+ * keys, where every worker thread would otherwise hit the same few
+ * {@code ConcurrentHashMap} bins and downstream containers.
+ *
+ * {@link #groupingByConcurrent} gives each worker thread its own plain map and merges
+ * them once at the end. {@link #groupingByStriped} shares one map, but gives every
+ * group a fixed number of lock-guarded downstream containers picked by thread, so
+ * memory stays bounded by {@code groups * stripes} however many threads run. Both
+ * are concurrent and unordered, like {@code groupingByConcurrent}. Used downstream of
+ * a non-concurrent collector on a parallel stream, such as {@code partitioningBy},
+ * they get one container per split, and those are merged group by group.
+ */
+public final class ConcurrentGroupingCollectors {
+
+    private ConcurrentGroupingCollectors() {}
+
+    public static <T, K> Collector<T, ?, ConcurrentMap<K, List<T>>> groupingByConcurrent(
+            Function<? super T, ? extends K> classifier) {
+        return groupingByConcurrent(classifier, Collectors.toList());
+    }
+
+    public static <T, K, A, D> Collector<T, ?, ConcurrentMap<K, D>> groupingByConcurrent(
+            Function<? super T, ? extends K> classifier, Collector<? super T, A, D> downstream) {
+        Supplier<A> supplier = downstream.supplier();
+        BiConsumer<A, ? super T> accumulator = downstream.accumulator();
+        BinaryOperator<A> combiner = downstream.combiner();
+        return Collector.of(
+                () -> new PerThread<K, A>(),
+                (groups, t) -> accumulator.accept(
+                        groups.local().computeIfAbsent(classifier.apply(t), k -> supplier.get()), t),
+                (a, b) -> a.absorb(b, combiner),
+                groups -> {
+                    ConcurrentMap<K, A> merged = new ConcurrentHashMap<>();
+                    for (Map<K, A> local : groups.byThread.values()) {
+                        local.forEach((k, a) -> merged.merge(k, a, combiner));
+                    }
+                    return finish(merged, downstream);
+                },
+                Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * @param stripes downstream containers per group, rounded up to a power of two;
+     *                about the number of cores is a good start
+     */
+    public static <T, K, A, D> Collector<T, ?, ConcurrentMap<K, D>> groupingByStriped(
+            Function<? super T, ? extends K> classifier, Collector<? super T, A, D> downstream, int stripes) {
+        if (stripes < 1 || stripes > 1 << 16) {
+            throw new IllegalArgumentException("Invalid stripes: " + stripes);
+        }
+        int size = Integer.highestOneBit(stripes - 1) << 1;
+        int count = size == 0 ? 1 : size;
+        Supplier<A> supplier = downstream.supplier();
+        BiConsumer<A, ? super T> accumulator = downstream.accumulator();
+        BinaryOperator<A> combiner = downstream.combiner();
+        return Collector.of(
+                () -> new ConcurrentHashMap<K, Striped<A>>(),
+                (groups, t) -> {
+                    K key = classifier.apply(t);
+                    Striped<A> group = groups.get(key);
+                    if (group == null) {
+                        group = groups.computeIfAbsent(key, k -> new Striped<>(count, supplier));
+                    }
+                    Striped.Stripe<A> stripe = group.stripeFor(Thread.currentThread());
+                    synchronized (stripe) {
+                        accumulator.accept(stripe.container, t);
+                    }
+                },
+                (a, b) -> {
+                    b.forEach((k, group) -> a.merge(k, group, (x, y) -> x.absorb(y, combiner)));
+                    return a;
+                },
+                groups -> {
+                    ConcurrentMap<K, A> merged = new ConcurrentHashMap<>();
+                    groups.forEach((k, group) -> merged.put(k, group.combine(combiner)));
+                    return finish(merged, downstream);
+                },
+                Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, A, D> ConcurrentMap<K, D> finish(ConcurrentMap<K, A> merged, Collector<?, A, D> downstream) {
+        if (downstream.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)) {
+            return (ConcurrentMap<K, D>) merged;
+        }
+        Function<A, D> finisher = downstream.finisher();
+        ((ConcurrentMap<K, Object>) merged).replaceAll((k, a) -> finisher.apply((A) a));
+        return (ConcurrentMap<K, D>) merged;
+    }
+
+    /**
+     * One plain map per worker thread. After the first element a thread only reads the
+     * registry, which never contends.
+     */
+    private static class PerThread<K, A> {
+        final ConcurrentMap<Thread, Map<K, A>> byThread = new ConcurrentHashMap<>();
+
+        Map<K, A> local() {
+            Thread thread = Thread.currentThread();
+            Map<K, A> local = byThread.get(thread);
+            if (local == null) {
+                local = new HashMap<>();
+                byThread.put(thread, local);
+            }
+            return local;
+        }
+
+        // only once both sides are done accumulating, as a non-concurrent parent combines
+        PerThread<K, A> absorb(PerThread<K, A> other, BinaryOperator<A> combiner) {
+            other.byThread.forEach((thread, theirs) -> byThread.merge(thread, theirs, (mine, t) -> {
+                t.forEach((k, a) -> mine.merge(k, a, combiner));
+                return mine;
+            }));
+            return this;
+        }
+    }
+
+    private static class Striped<A> {
+        static class Stripe<A> {
+            final A container;
+
+            Stripe(A container) {
+                this.container = container;
+            }
+        }
+
+        private final Stripe<A>[] stripes;
+
+        @SuppressWarnings("unchecked")
+        Striped(int count, Supplier<A> supplier) {
+            stripes = (Stripe<A>[]) new Stripe<?>[count];
+            for (int i = 0; i < count; i++) {
+                stripes[i] = new Stripe<>(supplier.get());
+            }
+        }
+
+        Stripe<A> stripeFor(Thread thread) {
+            long id = thread.getId() * 0x9E3779B97F4A7C15L;
+            return stripes[(int) (id >>> 32) & (stripes.length - 1)];
+        }
+
+        Striped<A> absorb(Striped<A> other, BinaryOperator<A> combiner) {
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i] = new Stripe<>(combiner.apply(stripes[i].container, other.stripes[i].container));
+            }
+            return this;
+        }
+
+        A combine(BinaryOperator<A> combiner) {
+            A result = stripes[0].container;
+            for (int i = 1; i < stripes.length; i++) {
+                result = combiner.apply(result, stripes[i].container);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.function.ObjIntConsumer;
+
+/**
+ * An {@link IdIndex} over a compact id range: one array slot per id in
+ * {@code [offset, offset + values.length)}.
+ */
+final class DenseIdIndex<V> implements IdIndex<V> {
+
+    private final Object[] values;
+    private final int offset;
+    private int size;
+
+    DenseIdIndex(int minId, int maxId) {
+        this.values = new Object[(int) ((long) maxId - minId + 1)];
+        this.offset = minId;
+    }
+
+    static <V> DenseIdIndex<V> copyOf(IntObjectMap<V> map) {
+        DenseIdIndex<V> index = new DenseIdIndex<>(map.minKey(), map.maxKey());
+        map.forEach((v, id) -> index.putIfAbsent(id, v));
+        return index;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(int id) {
+        long slot = (long) id - offset;
+        return slot >= 0 && slot < values.length ? (V) values[(int) slot] : null;
+    }
+
+    /** Like {@link IntObjectMap#putIfAbsent}; the id must be in range. */
+    @SuppressWarnings("unchecked")
+    V putIfAbsent(int id, V value) {
+        if (value == null) throw new NullPointerException("null value");
+        long slot = (long) id - offset;
+        if (slot < 0 || slot >= values.length) {
+            throw new IllegalArgumentException("Id out of range: " + id);
+        }
+        Object v = values[(int) slot];
+        if (v != null) return (V) v;
+        values[(int) slot] = value;
+        size++;
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(ObjIntConsumer<? super V> action) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) action.accept((V) values[i], offset + i);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.NoSuchElementException;
+import java.util.OptionalDouble;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+
+/**
+ * The output of a {@link DoubleBatchPipeline}: one value per input, and a bitmap
+ * with bit {@code i % 64} of word {@code i / 64} set if lane {@code i} is valid,
+ * that is, every stage was defined there. Invalid lanes hold NaN.
+ */
+public final class DoubleBatch {
+
+    private final double[] values;
+    private final long[] validity;
+
+    DoubleBatch(double[] values, long[] validity) {
+        this.values = values;
+        this.validity = validity;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public boolean isValid(int i) {
+        if (i < 0 || i >= values.length) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", size: " + values.length);
+        }
+        return (validity[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /** Like {@code Optional.get()}: throws {@link NoSuchElementException} on an invalid lane. */
+    public double get(int i) {
+        if (!isValid(i)) throw new NoSuchElementException("Invalid lane " + i);
+        return values[i];
+    }
+
+    public double getOrElse(int i, double other) {
+        return isValid(i) ? values[i] : other;
+    }
+
+    public OptionalDouble toOptional(int i) {
+        return isValid(i) ? OptionalDouble.of(values[i]) : OptionalDouble.empty();
+    }
+
+    public int validCount() {
+        int count = 0;
+        for (long word : validity) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /** The valid values, in lane order. */
+    public DoubleStream validValues() {
+        return IntStream.range(0, values.length)
+                .filter(i -> (validity[i >>> 6] & (1L << i)) != 0)
+                .mapToDouble(i -> values[i]);
+    }
+
+    /** A copy of the validity bitmap. */
+    public long[] validity() {
+        return validity.clone();
+    }
+}
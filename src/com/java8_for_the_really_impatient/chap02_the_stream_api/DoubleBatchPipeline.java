@@ -0,0 +1,74 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+
+/**
+ * A chain of {@link PartialDoubleFunction}s run over whole arrays, the batch form of
+ * {@code Optional.of(x).flatMap(StreamAPI::inverse).flatMap(StreamAPI::squareRoot)}.
+ *
+ * The input is processed in chunks of {@value #CHUNK} values: every stage runs over
+ * a chunk while it is still in cache before the next chunk starts, and chunks are
+ * independent, so {@link #applyParallel} runs them in parallel. Nothing is boxed;
+ * the only allocations are the output array and its bitmap.
+ */
+public final class DoubleBatchPipeline {
+
+    static final int CHUNK = 4096;
+
+    private static final DoubleBatchPipeline IDENTITY = new DoubleBatchPipeline(Collections.emptyList());
+
+    private final List<PartialDoubleFunction> stages;
+
+    private DoubleBatchPipeline(List<PartialDoubleFunction> stages) {
+        this.stages = stages;
+    }
+
+    public static DoubleBatchPipeline identity() {
+        return IDENTITY;
+    }
+
+    public DoubleBatchPipeline then(PartialDoubleFunction stage) {
+        List<PartialDoubleFunction> next = new ArrayList<>(stages);
+        next.add(stage);
+        return new DoubleBatchPipeline(Collections.unmodifiableList(next));
+    }
+
+    public DoubleBatch apply(double[] input) {
+        return run(input, false);
+    }
+
+    public DoubleBatch applyParallel(double[] input) {
+        return run(input, true);
+    }
+
+    /** Runs over the stream's elements, in parallel if the stream is. */
+    public DoubleBatch apply(DoubleStream input) {
+        return run(input.toArray(), input.isParallel());
+    }
+
+    private DoubleBatch run(double[] input, boolean parallel) {
+        double[] values = input.clone();
+        long[] validity = new long[(values.length + 63) >>> 6];
+        IntStream chunks = IntStream.range(0, (values.length + CHUNK - 1) / CHUNK);
+        if (parallel) chunks = chunks.parallel();
+        chunks.forEach(c -> runChunk(values, validity, c * CHUNK, Math.min(values.length, (c + 1) * CHUNK)));
+        return new DoubleBatch(values, validity);
+    }
+
+    private void runChunk(double[] values, long[] validity, int from, int to) {
+        for (int w = from >>> 6; w << 6 < to; w++) {
+            int lanes = Math.min(64, to - (w << 6));
+            validity[w] = lanes == 64 ? -1L : (1L << lanes) - 1;
+        }
+        for (PartialDoubleFunction stage : stages) {
+            stage.applyTo(values, validity, from, to);
+        }
+        for (int i = from; i < to; i++) {
+            if ((validity[i >>> 6] & (1L << i)) == 0) values[i] = Double.NaN;
+        }
+    }
+}
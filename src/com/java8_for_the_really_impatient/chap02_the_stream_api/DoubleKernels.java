@@ -0,0 +1,94 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+/**
+ * The built-in {@link PartialDoubleFunction}s. Each has its own class and loop, so the
+ * JIT sees one monomorphic, branch-free loop per kernel that it can unroll and
+ * vectorize; the result is computed in every lane and the domain test only feeds
+ * the validity bits.
+ */
+final class DoubleKernels {
+
+    static final PartialDoubleFunction INVERSE = new Inverse();
+    static final PartialDoubleFunction SQUARE_ROOT = new SquareRoot();
+    static final PartialDoubleFunction LOG = new Log();
+
+    private DoubleKernels() {}
+
+    private static final class Inverse implements PartialDoubleFunction {
+        @Override
+        public boolean isDefinedAt(double x) {
+            return x != 0;
+        }
+
+        @Override
+        public double apply(double x) {
+            return 1 / x;
+        }
+
+        @Override
+        public void applyTo(double[] values, long[] validity, int from, int to) {
+            for (int base = from; base < to; base += 64) {
+                int end = Math.min(base + 64, to);
+                long bits = 0;
+                for (int i = base; i < end; i++) {
+                    double x = values[i];
+                    bits |= (x != 0 ? 1L : 0L) << (i - base);
+                    values[i] = 1 / x;
+                }
+                validity[base >>> 6] &= bits;
+            }
+        }
+    }
+
+    private static final class SquareRoot implements PartialDoubleFunction {
+        @Override
+        public boolean isDefinedAt(double x) {
+            return !(x < 0);
+        }
+
+        @Override
+        public double apply(double x) {
+            return Math.sqrt(x);
+        }
+
+        @Override
+        public void applyTo(double[] values, long[] validity, int from, int to) {
+            for (int base = from; base < to; base += 64) {
+                int end = Math.min(base + 64, to);
+                long bits = 0;
+                for (int i = base; i < end; i++) {
+                    double x = values[i];
+                    bits |= (!(x < 0) ? 1L : 0L) << (i - base);
+                    values[i] = Math.sqrt(x);
+                }
+                validity[base >>> 6] &= bits;
+            }
+        }
+    }
+
+    private static final class Log implements PartialDoubleFunction {
+        @Override
+        public boolean isDefinedAt(double x) {
+            return !(x <= 0);
+        }
+
+        @Override
+        public double apply(double x) {
+            return Math.log(x);
+        }
+
+        @Override
+        public void applyTo(double[] values, long[] validity, int from, int to) {
+            for (int base = from; base < to; base += 64) {
+                int end = Math.min(base + 64, to);
+                long bits = 0;
+                for (int i = base; i < end; i++) {
+                    double x = values[i];
+                    bits |= (!(x <= 0) ? 1L : 0L) << (i - base);
+                    values[i] = Math.log(x);
+                }
+                validity[base >>> 6] &= bits;
+            }
+        }
+    }
+}
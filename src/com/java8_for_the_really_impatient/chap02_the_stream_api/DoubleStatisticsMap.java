@@ -0,0 +1,96 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+/**
+ * Per-key count, sum, min and max of {@code double} values, like a map to
+ * {@code DoubleSummaryStatistics} kept in four primitive columns. Sums are plain, not
+ * compensated. Missing keys report the values of an empty
+ * {@code DoubleSummaryStatistics}.
+ */
+public class DoubleStatisticsMap<K> extends ObjectHashKeys<K> {
+
+    @FunctionalInterface
+    public interface StatisticsConsumer<K> {
+        void accept(K key, long count, double sum, double min, double max);
+    }
+
+    private long[] counts = new long[capacity()];
+    private double[] sums = new double[capacity()];
+    private double[] mins = new double[capacity()];
+    private double[] maxs = new double[capacity()];
+
+    public void accept(K key, double value) {
+        combine(key, 1, value, value, value);
+    }
+
+    public DoubleStatisticsMap<K> merge(DoubleStatisticsMap<K> other) {
+        other.forEach(this::combine);
+        return this;
+    }
+
+    public long getCount(Object key) {
+        int slot = find(key);
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    public double getSum(Object key) {
+        int slot = find(key);
+        return slot < 0 ? 0 : sums[slot];
+    }
+
+    public double getMin(Object key) {
+        int slot = find(key);
+        return slot < 0 ? Double.POSITIVE_INFINITY : mins[slot];
+    }
+
+    public double getMax(Object key) {
+        int slot = find(key);
+        return slot < 0 ? Double.NEGATIVE_INFINITY : maxs[slot];
+    }
+
+    public double getAverage(Object key) {
+        int slot = find(key);
+        return slot < 0 ? 0 : sums[slot] / counts[slot];
+    }
+
+    public void forEach(StatisticsConsumer<? super K> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) action.accept(keyAt(i), counts[i], sums[i], mins[i], maxs[i]);
+        }
+    }
+
+    private void combine(K key, long count, double sum, double min, double max) {
+        int slot = insert(key);
+        if (slot < 0) {
+            slot = ~slot;
+            counts[slot] = count;
+            sums[slot] = sum;
+            mins[slot] = min;
+            maxs[slot] = max;
+        } else {
+            counts[slot] += count;
+            sums[slot] += sum;
+            mins[slot] = Math.min(mins[slot], min);
+            maxs[slot] = Math.max(maxs[slot], max);
+        }
+    }
+
+    @Override
+    void rehash(int capacity, int[] moves) {
+        long[] movedCounts = new long[capacity];
+        double[] movedSums = new double[capacity];
+        double[] movedMins = new double[capacity];
+        double[] movedMaxs = new double[capacity];
+        for (int i = 0; i < moves.length; i++) {
+            int j = moves[i];
+            if (j < 0) continue;
+            movedCounts[j] = counts[i];
+            movedSums[j] = sums[i];
+            movedMins[j] = mins[i];
+            movedMaxs[j] = maxs[i];
+        }
+        counts = movedCounts;
+        sums = movedSums;
+        mins = movedMins;
+        maxs = movedMaxs;
+    }
+}
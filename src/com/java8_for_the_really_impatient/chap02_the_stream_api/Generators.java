@@ -0,0 +1,180 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.SplittableRandom;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Finite sequence sources that split for {@code parallel()}, unlike
+ * {@code Stream.iterate} and {@code Stream.generate}, which hand out one element at a
+ * time from a single sequential iterator.
+ *
+ * Each split starts from a value computed directly for its first index (a jump),
+ * or, for random streams, from its own {@link SplittableRandom}, so no worker waits on
+ * another or shares a seed.
+ */
+public final class Generators {
+
+    private Generators() {}
+
+    /**
+     * Computes the element at index {@code n} steps after {@code from}; for
+     * {@code iterate(seed, f)} it must equal applying {@code f} {@code n} times.
+     */
+    @FunctionalInterface
+    public interface Jump<T> {
+        T apply(T from, long n);
+    }
+
+    /**
+     * {@code f(0), f(1), ..., f(count - 1)}.
+     */
+    public static <T> Stream<T> indexed(long count, LongFunction<? extends T> f) {
+        return LongStream.range(0, count).mapToObj(f);
+    }
+
+    /**
+     * Like {@code Stream.iterate(seed, next).limit(count)}, but a split jumps to its
+     * first element instead of iterating up to it; for example powers of two are
+     * {@code iterate(1.0, p -> p * 2, (p, n) -> p * Math.pow(2, n), count)}.
+     */
+    public static <T> Stream<T> iterate(T seed, UnaryOperator<T> next, Jump<T> jump, long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative: " + count);
+        }
+        return StreamSupport.stream(new JumpSpliterator<>(seed, next, jump, 0, count), false);
+    }
+
+    /**
+     * Like {@code Stream.generate(() -> f.apply(random)).limit(count)}; each split
+     * draws from a random generator split off from the parent's. With a given seed
+     * the values are reproducible for the same split pattern.
+     */
+    public static <T> Stream<T> random(long count, long seed, Function<SplittableRandom, ? extends T> f) {
+        return random(count, new SplittableRandom(seed), f);
+    }
+
+    public static <T> Stream<T> random(long count, Function<SplittableRandom, ? extends T> f) {
+        return random(count, new SplittableRandom(), f);
+    }
+
+    private static <T> Stream<T> random(long count, SplittableRandom random, Function<SplittableRandom, ? extends T> f) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative: " + count);
+        }
+        return StreamSupport.stream(new RandomSpliterator<>(random, f, 0, count), false);
+    }
+
+    /**
+     * Estimates pi from {@code samples} random points in the unit square.
+     */
+    public static double monteCarloPi(long samples, long seed) {
+        long inside = random(samples, seed, r -> {
+            double x = r.nextDouble();
+            double y = r.nextDouble();
+            return x * x + y * y <= 1;
+        }).parallel().filter(hit -> hit).count();
+        return 4.0 * inside / samples;
+    }
+
+    private static class JumpSpliterator<T> implements Spliterator<T> {
+        private final UnaryOperator<T> next;
+        private final Jump<T> jump;
+        private T current;
+        private long index;
+        private final long fence;
+
+        JumpSpliterator(T current, UnaryOperator<T> next, Jump<T> jump, long index, long fence) {
+            this.current = current;
+            this.next = next;
+            this.jump = jump;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            long mid = (index + fence) >>> 1;
+            if (mid <= index) return null;
+            Spliterator<T> prefix = new JumpSpliterator<>(current, next, jump, index, mid);
+            current = jump.apply(current, mid - index);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (index >= fence) return false;
+            T t = current;
+            if (++index < fence) {
+                current = next.apply(t);
+            }
+            action.accept(t);
+            return true;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE;
+        }
+    }
+
+    private static class RandomSpliterator<T> implements Spliterator<T> {
+        private final SplittableRandom random;
+        private final Function<SplittableRandom, ? extends T> f;
+        private long index;
+        private final long fence;
+
+        RandomSpliterator(SplittableRandom random, Function<SplittableRandom, ? extends T> f, long index, long fence) {
+            this.random = random;
+            this.f = f;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            long mid = (index + fence) >>> 1;
+            if (mid <= index) return null;
+            Spliterator<T> prefix = new RandomSpliterator<>(random.split(), f, index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (index >= fence) return false;
+            index++;
+            action.accept(f.apply(random));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            for (; index < fence; index++) {
+                action.accept(f.apply(random));
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return SIZED | SUBSIZED | IMMUTABLE;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+/**
+ * 64-bit hashes for the probabilistic sketches. {@code hashCode()} has only 32 bits,
+ * which collide far too often at billions of distinct values, so strings are hashed
+ * from their characters instead.
+ */
+final class Hashes {
+
+    private Hashes() {}
+
+    static long hash64(Object o) {
+        if (o instanceof CharSequence) {
+            return hash64((CharSequence) o);
+        }
+        return mix(o.hashCode());
+    }
+
+    static long hash64(CharSequence s) {
+        long h = 0xCBF29CE484222325L ^ s.length();
+        for (int i = 0, n = s.length(); i < n; i++) {
+            h = (h ^ s.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    /** The SplitMix64 finalizer. */
+    static long mix(long h) {
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+}
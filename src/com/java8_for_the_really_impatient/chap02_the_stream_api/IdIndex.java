@@ -0,0 +1,30 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A read-only map from {@code int} ids to non-null values, as built by
+ * {@link IdIndexCollectors}, without boxed keys or entry nodes.
+ */
+public interface IdIndex<V> {
+
+    /** What a collector does when two elements have the same id. */
+    enum DuplicatePolicy { THROW, KEEP_FIRST }
+
+    /** The value for {@code id}, or null. */
+    V get(int id);
+
+    default V getOrDefault(int id, V defaultValue) {
+        V value = get(id);
+        return value != null ? value : defaultValue;
+    }
+
+    default boolean containsId(int id) {
+        return get(id) != null;
+    }
+
+    int size();
+
+    /** Visits the entries in no particular order. */
+    void forEach(ObjIntConsumer<? super V> action);
+}
@@ -0,0 +1,86 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collector;
+
+/**
+ * {@code toMap(Person::getId, ...)} for {@code int} ids, collected into an
+ * {@link IdIndex}: an array indexed by id when the ids are compact, an open-addressing
+ * map otherwise. Either way ids are never boxed and entries take no nodes.
+ */
+public final class IdIndexCollectors {
+
+    /** An index is dense if its id range is at most this many times its size. */
+    private static final int MAX_DENSE_SPAN = 2;
+
+    private IdIndexCollectors() {}
+
+    public static <T, V> Collector<T, ?, IdIndex<V>> toIdIndex(
+            ToIntFunction<? super T> idMapper, Function<? super T, ? extends V> valueMapper) {
+        return toIdIndex(idMapper, valueMapper, IdIndex.DuplicatePolicy.THROW);
+    }
+
+    /**
+     * Picks the dense or sparse layout once all ids are known. With
+     * {@code KEEP_FIRST}, the value of the first element in encounter order is kept.
+     */
+    public static <T, V> Collector<T, ?, IdIndex<V>> toIdIndex(
+            ToIntFunction<? super T> idMapper, Function<? super T, ? extends V> valueMapper,
+            IdIndex.DuplicatePolicy policy) {
+        return Collector.of(
+                IntObjectMap<V>::new,
+                (map, t) -> {
+                    int id = idMapper.applyAsInt(t);
+                    V value = valueMapper.apply(t);
+                    if (map.putIfAbsent(id, value) != null) duplicate(id, policy);
+                },
+                (a, b) -> {
+                    b.forEach((value, id) -> {
+                        if (a.putIfAbsent(id, value) != null) duplicate(id, policy);
+                    });
+                    return a;
+                },
+                IdIndexCollectors::compact);
+    }
+
+    /**
+     * Collects straight into an array for ids known to lie in {@code [minId, maxId]};
+     * other ids throw {@code IllegalArgumentException}. Every parallel split allocates
+     * the whole range, so prefer {@link #toIdIndex} when the range is much larger than
+     * the number of elements.
+     */
+    public static <T, V> Collector<T, ?, IdIndex<V>> toDenseIdIndex(
+            int minId, int maxId, ToIntFunction<? super T> idMapper, Function<? super T, ? extends V> valueMapper,
+            IdIndex.DuplicatePolicy policy) {
+        if (minId > maxId || (long) maxId - minId >= Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Invalid id range: [" + minId + ", " + maxId + "]");
+        }
+        return Collector.<T, DenseIdIndex<V>, IdIndex<V>>of(
+                () -> new DenseIdIndex<>(minId, maxId),
+                (index, t) -> {
+                    int id = idMapper.applyAsInt(t);
+                    V value = valueMapper.apply(t);
+                    if (index.putIfAbsent(id, value) != null) duplicate(id, policy);
+                },
+                (a, b) -> {
+                    b.forEach((value, id) -> {
+                        if (a.putIfAbsent(id, value) != null) duplicate(id, policy);
+                    });
+                    return a;
+                },
+                index -> index);
+    }
+
+    private static <V> IdIndex<V> compact(IntObjectMap<V> map) {
+        if (map.size() == 0) return map;
+        long span = (long) map.maxKey() - map.minKey() + 1;
+        return span <= (long) MAX_DENSE_SPAN * map.size() ? DenseIdIndex.copyOf(map) : map;
+    }
+
+    private static void duplicate(int id, IdIndex.DuplicatePolicy policy) {
+        if (policy == IdIndex.DuplicatePolicy.THROW) {
+            throw new IllegalStateException("Duplicate id " + id);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The {@link IntStream} counterpart of {@link InstrumentedStream}, reached through
+ * {@code mapToInt} or {@link PipelineMetrics#instrument(String, IntStream)}.
+ */
+public class InstrumentedIntStream {
+
+    private final PipelineMetrics metrics;
+    private final String pipeline;
+    private final IntStream stream;
+
+    InstrumentedIntStream(PipelineMetrics metrics, String pipeline, IntStream stream) {
+        this.metrics = metrics;
+        this.pipeline = pipeline;
+        this.stream = stream;
+    }
+
+    static InstrumentedIntStream of(PipelineMetrics metrics, String pipeline, IntStream stream) {
+        SourceMetrics source = metrics.source(pipeline);
+        IntStream timed = StreamSupport.intStream(new TimedSpliterator(stream.spliterator(), source), stream.isParallel())
+                .onClose(stream::close);
+        return new InstrumentedIntStream(metrics, pipeline, timed);
+    }
+
+    public InstrumentedIntStream filter(String stage, IntPredicate predicate) {
+        StageMetrics m = metrics.stage(pipeline, stage);
+        return wrap(stream.filter(i -> {
+            long start = System.nanoTime();
+            boolean keep = predicate.test(i);
+            m.nanos.add(System.nanoTime() - start);
+            m.in.increment();
+            if (keep) m.out.increment();
+            return keep;
+        }));
+    }
+
+    public InstrumentedIntStream map(String stage, IntUnaryOperator mapper) {
+        StageMetrics m = metrics.stage(pipeline, stage);
+        return wrap(stream.map(i -> {
+            long start = System.nanoTime();
+            int r = mapper.applyAsInt(i);
+            m.nanos.add(System.nanoTime() - start);
+            m.in.increment();
+            m.out.increment();
+            return r;
+        }));
+    }
+
+    /** Timed and counted like {@link InstrumentedStream#flatMap}. */
+    public InstrumentedIntStream flatMap(String stage, IntFunction<? extends IntStream> mapper) {
+        StageMetrics m = metrics.stage(pipeline, stage);
+        return wrap(stream.flatMap(i -> {
+            long start = System.nanoTime();
+            IntStream s = mapper.apply(i);
+            m.nanos.add(System.nanoTime() - start);
+            m.in.increment();
+            return s == null ? null : s.peek(r -> m.out.increment());
+        }));
+    }
+
+    public <R> InstrumentedStream<R> mapToObj(String stage, IntFunction<? extends R> mapper) {
+        StageMetrics m = metrics.stage(pipeline, stage);
+        return new InstrumentedStream<>(metrics, pipeline, stream.mapToObj(i -> {
+            long start = System.nanoTime();
+            R r = mapper.apply(i);
+            m.nanos.add(System.nanoTime() - start);
+            m.in.increment();
+            m.out.increment();
+            return r;
+        }));
+    }
+
+    /** Applies an uninstrumented operation, such as {@code s -> s.sorted()}. */
+    public InstrumentedIntStream then(Function<? super IntStream, ? extends IntStream> operation) {
+        return wrap(operation.apply(stream));
+    }
+
+    public IntStream stream() {
+        return stream;
+    }
+
+    private InstrumentedIntStream wrap(IntStream next) {
+        return new InstrumentedIntStream(metrics, pipeline, next);
+    }
+
+    /** As in {@link InstrumentedStream}, for int sources. */
+    private static class TimedSpliterator implements Spliterator.OfInt {
+        private final Spliterator.OfInt delegate;
+        private final SourceMetrics metrics;
+
+        TimedSpliterator(Spliterator.OfInt delegate, SourceMetrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (!delegate.tryAdvance(action)) return false;
+            metrics.out.increment();
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            long[] count = new long[1];
+            long start = System.nanoTime();
+            delegate.forEachRemaining((int i) -> {
+                count[0]++;
+                action.accept(i);
+            });
+            long elapsed = System.nanoTime() - start;
+            metrics.out.add(count[0]);
+            metrics.nanos.add(elapsed);
+            metrics.tasks.increment();
+            metrics.maxTaskNanos.accumulate(elapsed);
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            Spliterator.OfInt prefix = delegate.trySplit();
+            if (prefix == null) return null;
+            metrics.splits.increment();
+            return new TimedSpliterator(prefix, metrics);
+        }
+
+        @Override
+        public long estimateSize() {
+            return delegate.estimateSize();
+        }
+
+        @Override
+        public long getExactSizeIfKnown() {
+            return delegate.getExactSizeIfKnown();
+        }
+
+        @Override
+        public int characteristics() {
+            return delegate.characteristics();
+        }
+
+        @Override
+        public Comparator<? super Integer> getComparator() {
+            return delegate.getComparator();
+        }
+    }
+}
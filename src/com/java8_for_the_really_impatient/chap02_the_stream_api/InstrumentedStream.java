@@ -0,0 +1,173 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A {@link Stream} under construction whose named stages record {@link StageMetrics}.
+ * Build the pipeline through this wrapper, then call {@link #stream()} for the
+ * terminal operation:
+ *
+ * <pre>
+ * long count = PipelineMetrics.global().instrument("words", wordList.parallelStream())
+ *         .filter("long", w -> w.length() > 12)
+ *         .map("lower", String::toLowerCase)
+ *         .stream().count();
+ * </pre>
+ *
+ * Each instrumented element costs two {@code System.nanoTime()} calls and a few
+ * striped-counter updates, so instrument stages that do real work per element.
+ */
+public class InstrumentedStream<T> {
+
+    private final PipelineMetrics metrics;
+    private final String pipeline;
+    private final Stream<T> stream;
+
+    InstrumentedStream(PipelineMetrics metrics, String pipeline, Stream<T> stream) {
+        this.metrics = metrics;
+        this.pipeline = pipeline;
+        this.stream = stream;
+    }
+
+    static <T> InstrumentedStream<T> of(PipelineMetrics metrics, String pipeline, Stream<T> stream) {
+        SourceMetrics source = metrics.source(pipeline);
+        Stream<T> timed = StreamSupport.stream(new TimedSpliterator<>(stream.spliterator(), source), stream.isParallel())
+                .onClose(stream::close);
+        return new InstrumentedStream<>(metrics, pipeline, timed);
+    }
+
+    public InstrumentedStream<T> filter(String stage, Predicate<? super T> predicate) {
+        StageMetrics m = metrics.stage(pipeline, stage);
+        return wrap(stream.filter(t -> {
+            long start = System.nanoTime();
+            boolean keep = predicate.test(t);
+            m.nanos.add(System.nanoTime() - start);
+            m.in.increment();
+            if (keep) m.out.increment();
+            return keep;
+        }));
+    }
+
+    public <R> InstrumentedStream<R> map(String stage, Function<? super T, ? extends R> mapper) {
+        StageMetrics m = metrics.stage(pipeline, stage);
+        return wrap(stream.map(t -> {
+            long start = System.nanoTime();
+            R r = mapper.apply(t);
+            m.nanos.add(System.nanoTime() - start);
+            m.in.increment();
+            m.out.increment();
+            return r;
+        }));
+    }
+
+    /**
+     * The stage time covers the mapper call only, not the traversal of the streams it
+     * returns; the output count covers all their elements.
+     */
+    public <R> InstrumentedStream<R> flatMap(String stage, Function<? super T, ? extends Stream<? extends R>> mapper) {
+        StageMetrics m = metrics.stage(pipeline, stage);
+        return wrap(stream.flatMap(t -> {
+            long start = System.nanoTime();
+            Stream<? extends R> s = mapper.apply(t);
+            m.nanos.add(System.nanoTime() - start);
+            m.in.increment();
+            return s == null ? null : s.peek(r -> m.out.increment());
+        }));
+    }
+
+    public InstrumentedIntStream mapToInt(String stage, ToIntFunction<? super T> mapper) {
+        StageMetrics m = metrics.stage(pipeline, stage);
+        return new InstrumentedIntStream(metrics, pipeline, stream.mapToInt(t -> {
+            long start = System.nanoTime();
+            int r = mapper.applyAsInt(t);
+            m.nanos.add(System.nanoTime() - start);
+            m.in.increment();
+            m.out.increment();
+            return r;
+        }));
+    }
+
+    /** Applies an uninstrumented operation, such as {@code s -> s.distinct()}. */
+    public <R> InstrumentedStream<R> then(Function<? super Stream<T>, ? extends Stream<R>> operation) {
+        return wrap(operation.apply(stream));
+    }
+
+    public Stream<T> stream() {
+        return stream;
+    }
+
+    private <R> InstrumentedStream<R> wrap(Stream<R> next) {
+        return new InstrumentedStream<>(metrics, pipeline, next);
+    }
+
+    /**
+     * Counts splits and times each bulk traversal; element-at-a-time traversal (used
+     * by short-circuiting operations) is counted but not timed.
+     */
+    private static class TimedSpliterator<T> implements Spliterator<T> {
+        private final Spliterator<T> delegate;
+        private final SourceMetrics metrics;
+
+        TimedSpliterator(Spliterator<T> delegate, SourceMetrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (!delegate.tryAdvance(action)) return false;
+            metrics.out.increment();
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            long[] count = new long[1];
+            long start = System.nanoTime();
+            delegate.forEachRemaining(t -> {
+                count[0]++;
+                action.accept(t);
+            });
+            long elapsed = System.nanoTime() - start;
+            metrics.out.add(count[0]);
+            metrics.nanos.add(elapsed);
+            metrics.tasks.increment();
+            metrics.maxTaskNanos.accumulate(elapsed);
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            Spliterator<T> prefix = delegate.trySplit();
+            if (prefix == null) return null;
+            metrics.splits.increment();
+            return new TimedSpliterator<>(prefix, metrics);
+        }
+
+        @Override
+        public long estimateSize() {
+            return delegate.estimateSize();
+        }
+
+        @Override
+        public long getExactSizeIfKnown() {
+            return delegate.getExactSizeIfKnown();
+        }
+
+        @Override
+        public int characteristics() {
+            return delegate.characteristics();
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            return delegate.getComparator();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.function.ObjIntConsumer;
+
+/**
+ * An open-addressing (linear probing) map from {@code int} keys to non-null values,
+ * in two flat arrays.
+ */
+public class IntObjectMap<V> implements IdIndex<V> {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+    private int resizeAt;
+    private int minKey = Integer.MAX_VALUE;
+    private int maxKey = Integer.MIN_VALUE;
+
+    public IntObjectMap() {
+        this(16);
+    }
+
+    public IntObjectMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Invalid expected size: " + expectedSize);
+        }
+        long wanted = Math.max(16, 2L * expectedSize);
+        allocate((int) Math.min(1 << 30, Long.highestOneBit(wanted - 1) << 1));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            Object v = values[i];
+            if (v == null) return null;
+            if (keys[i] == key) return (V) v;
+        }
+    }
+
+    /**
+     * Returns the value already mapped to {@code key}, or null after mapping it to
+     * {@code value}.
+     */
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(int key, V value) {
+        if (value == null) throw new NullPointerException("null value");
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            Object v = values[i];
+            if (v == null) {
+                if (size >= resizeAt) {
+                    grow();
+                    return putIfAbsent(key, value);
+                }
+                keys[i] = key;
+                values[i] = value;
+                size++;
+                minKey = Math.min(minKey, key);
+                maxKey = Math.max(maxKey, key);
+                return null;
+            }
+            if (keys[i] == key) return (V) v;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(ObjIntConsumer<? super V> action) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) action.accept((V) values[i], keys[i]);
+        }
+    }
+
+    int minKey() {
+        return minKey;
+    }
+
+    int maxKey() {
+        return maxKey;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] == null) continue;
+            int i = hash(oldKeys[j]) & mask;
+            while (values[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,102 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The display country, language and name of a set of locales, looked up once.
+ * {@code Locale.getDisplayCountry()} and friends go through resource bundles on every
+ * call; the cache is immutable, so one instance can be shared by any number of
+ * threads and index builds.
+ */
+public final class LocaleDisplayCache {
+
+    public static final class Entry {
+        private final Locale locale;
+        private final String displayCountry;
+        private final String displayLanguage;
+        private final String displayName;
+
+        Entry(Locale locale, Locale inLocale) {
+            this.locale = locale;
+            this.displayCountry = locale.getDisplayCountry(inLocale);
+            this.displayLanguage = locale.getDisplayLanguage(inLocale);
+            this.displayName = locale.getDisplayName(inLocale);
+        }
+
+        public Locale getLocale() { return locale; }
+        public String getDisplayCountry() { return displayCountry; }
+        public String getDisplayLanguage() { return displayLanguage; }
+        public String getDisplayName() { return displayName; }
+    }
+
+    private static class AvailableLocales {
+        static final LocaleDisplayCache INSTANCE =
+                new LocaleDisplayCache(Arrays.asList(Locale.getAvailableLocales()),
+                        Locale.getDefault(Locale.Category.DISPLAY));
+    }
+
+    private final Locale inLocale;
+    private final List<Entry> entries;
+    private final Map<Locale, Entry> byLocale;
+
+    private LocaleDisplayCache(Collection<Locale> locales, Locale inLocale) {
+        this.inLocale = inLocale;
+        this.entries = Collections.unmodifiableList(locales.parallelStream()
+                .map(l -> new Entry(l, inLocale))
+                .collect(Collectors.toList()));
+        Map<Locale, Entry> byLocale = new HashMap<>();
+        for (Entry entry : entries) {
+            byLocale.putIfAbsent(entry.getLocale(), entry);
+        }
+        this.byLocale = Collections.unmodifiableMap(byLocale);
+    }
+
+    /**
+     * The available locales, displayed in the default display locale as of the first call.
+     */
+    public static LocaleDisplayCache availableLocales() {
+        return AvailableLocales.INSTANCE;
+    }
+
+    public static LocaleDisplayCache of(Collection<Locale> locales, Locale inLocale) {
+        return new LocaleDisplayCache(locales, inLocale);
+    }
+
+    public List<Entry> entries() {
+        return entries;
+    }
+
+    public Stream<Entry> stream() {
+        return entries.stream();
+    }
+
+    /** Locales outside the cache are looked up directly. */
+    public Entry get(Locale locale) {
+        Entry entry = byLocale.get(locale);
+        return entry != null ? entry : new Entry(locale, inLocale);
+    }
+
+    public String getDisplayCountry(Locale locale) {
+        return get(locale).getDisplayCountry();
+    }
+
+    public String getDisplayLanguage(Locale locale) {
+        return get(locale).getDisplayLanguage();
+    }
+
+    public String getDisplayName(Locale locale) {
+        return get(locale).getDisplayName();
+    }
+
+    public Locale getDisplayLocale() {
+        return inLocale;
+    }
+}
@@ -0,0 +1,95 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+/**
+ * Per-key count, sum, min and max of {@code long} (or {@code int}) values, like a map
+ * to {@code LongSummaryStatistics} kept in four primitive columns. Missing keys report
+ * the values of an empty {@code LongSummaryStatistics}.
+ */
+public class LongStatisticsMap<K> extends ObjectHashKeys<K> {
+
+    @FunctionalInterface
+    public interface StatisticsConsumer<K> {
+        void accept(K key, long count, long sum, long min, long max);
+    }
+
+    private long[] counts = new long[capacity()];
+    private long[] sums = new long[capacity()];
+    private long[] mins = new long[capacity()];
+    private long[] maxs = new long[capacity()];
+
+    public void accept(K key, long value) {
+        combine(key, 1, value, value, value);
+    }
+
+    public LongStatisticsMap<K> merge(LongStatisticsMap<K> other) {
+        other.forEach(this::combine);
+        return this;
+    }
+
+    public long getCount(Object key) {
+        int slot = find(key);
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    public long getSum(Object key) {
+        int slot = find(key);
+        return slot < 0 ? 0 : sums[slot];
+    }
+
+    public long getMin(Object key) {
+        int slot = find(key);
+        return slot < 0 ? Long.MAX_VALUE : mins[slot];
+    }
+
+    public long getMax(Object key) {
+        int slot = find(key);
+        return slot < 0 ? Long.MIN_VALUE : maxs[slot];
+    }
+
+    public double getAverage(Object key) {
+        int slot = find(key);
+        return slot < 0 ? 0 : (double) sums[slot] / counts[slot];
+    }
+
+    public void forEach(StatisticsConsumer<? super K> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) action.accept(keyAt(i), counts[i], sums[i], mins[i], maxs[i]);
+        }
+    }
+
+    private void combine(K key, long count, long sum, long min, long max) {
+        int slot = insert(key);
+        if (slot < 0) {
+            slot = ~slot;
+            counts[slot] = count;
+            sums[slot] = sum;
+            mins[slot] = min;
+            maxs[slot] = max;
+        } else {
+            counts[slot] += count;
+            sums[slot] += sum;
+            mins[slot] = Math.min(mins[slot], min);
+            maxs[slot] = Math.max(maxs[slot], max);
+        }
+    }
+
+    @Override
+    void rehash(int capacity, int[] moves) {
+        long[] movedCounts = new long[capacity];
+        long[] movedSums = new long[capacity];
+        long[] movedMins = new long[capacity];
+        long[] movedMaxs = new long[capacity];
+        for (int i = 0; i < moves.length; i++) {
+            int j = moves[i];
+            if (j < 0) continue;
+            movedCounts[j] = counts[i];
+            movedSums[j] = sums[i];
+            movedMins[j] = mins[i];
+            movedMaxs[j] = maxs[i];
+        }
+        counts = movedCounts;
+        sums = movedSums;
+        mins = movedMins;
+        maxs = movedMaxs;
+    }
+}
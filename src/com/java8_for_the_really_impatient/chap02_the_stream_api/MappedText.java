@@ -0,0 +1,190 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A parallel-friendly replacement for {@code Files.lines(path)} on UTF-8 files.
+ *
+ * The file is memory-mapped and its spliterator splits the byte range in half, moving
+ * the split point forward to the next delimiter, so every split holds whole lines (or
+ * words) and parallel pipelines get balanced chunks. Delimiters are ASCII, which never
+ * occur inside a multi-byte UTF-8 sequence.
+ *
+ * As with {@code Files.lines}, malformed UTF-8 is not replaced: reading it throws an
+ * {@link UncheckedIOException} caused by a {@code MalformedInputException}.
+ */
+public final class MappedText implements AutoCloseable {
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    private static final long MIN_SPLIT_BYTES = 1 << 16;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long size;
+
+    private MappedText(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        int count = (int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        this.segments = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long position = (long) i << SEGMENT_SHIFT;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, 1L << SEGMENT_SHIFT));
+        }
+    }
+
+    static MappedText open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new MappedText(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Same lines as {@code Files.lines(path)}: a line ends at {@code \n}, {@code \r}
+     * or {@code \r\n}. Closing the stream closes the file.
+     */
+    public static Stream<String> lines(Path path) throws IOException {
+        MappedText text = open(path);
+        return text.stream(false);
+    }
+
+    /**
+     * The runs of non-whitespace characters, split at ASCII whitespace.
+     */
+    public static Stream<String> words(Path path) throws IOException {
+        MappedText text = open(path);
+        return text.stream(true);
+    }
+
+    long size() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private Stream<String> stream(boolean words) {
+        return StreamSupport.stream(new TokenSpliterator(words, 0, size), false)
+                .onClose(() -> {
+                    try {
+                        close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    private byte get(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK));
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+    }
+
+    private class TokenSpliterator implements Spliterator<String> {
+        private final boolean words;
+        private long position;
+        private final long end;
+        private byte[] buffer = new byte[128];
+        private CharsetDecoder decoder;
+
+        TokenSpliterator(boolean words, long position, long end) {
+            this.words = words;
+            this.position = position;
+            this.end = end;
+        }
+
+        private boolean isDelimiter(byte b) {
+            return words ? isWhitespace(b) : b == '\n' || b == '\r';
+        }
+
+        // never between the two bytes of a \r\n, which would make an extra empty line
+        private boolean isTokenStart(long at) {
+            byte previous = get(at - 1);
+            return isDelimiter(previous) && (words || previous != '\r' || get(at) != '\n');
+        }
+
+        @Override
+        public Spliterator<String> trySplit() {
+            long remaining = end - position;
+            if (remaining < 2 * MIN_SPLIT_BYTES) return null;
+            long mid = position + remaining / 2;
+            while (mid < end && !isTokenStart(mid)) {
+                mid++;
+            }
+            if (mid >= end) return null;
+            Spliterator<String> prefix = new TokenSpliterator(words, position, mid);
+            position = mid;
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super String> action) {
+            if (words) {
+                while (position < end && isWhitespace(get(position))) {
+                    position++;
+                }
+            }
+            if (position >= end) return false;
+            long start = position;
+            while (position < end && !isDelimiter(get(position))) {
+                position++;
+            }
+            long tokenEnd = position;
+            if (position < end && get(position++) == '\r' && !words && position < end && get(position) == '\n') {
+                position++;
+            }
+            action.accept(decode(start, tokenEnd));
+            return true;
+        }
+
+        private String decode(long from, long to) {
+            int length = (int) (to - from);
+            if (buffer.length < length) {
+                buffer = new byte[Math.max(length, 2 * buffer.length)];
+            }
+            for (int i = 0; i < length; i++) {
+                buffer[i] = get(from + i);
+            }
+            if (decoder == null) {
+                decoder = StandardCharsets.UTF_8.newDecoder();
+            }
+            try {
+                return decoder.decode(ByteBuffer.wrap(buffer, 0, length)).toString();
+            } catch (CharacterCodingException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - position;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+    }
+}
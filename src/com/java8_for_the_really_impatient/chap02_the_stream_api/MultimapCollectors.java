@@ -0,0 +1,87 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * {@code toMap} for collection-valued maps, without a merge function that copies both
+ * sets on every key collision. Values are added to each key's collection in place,
+ * and parallel partial results are merged by adding the later collection of a key to
+ * the earlier one, which keeps encounter order for lists. Set-valued results have no
+ * order to keep, so there the smaller set is added to the larger one.
+ */
+public final class MultimapCollectors {
+
+    private MultimapCollectors() {}
+
+    public static <T, K, V> Collector<T, ?, Map<K, Set<V>>> toSetMultimap(
+            Function<? super T, ? extends K> keyMapper, Function<? super T, ? extends V> valueMapper) {
+        return multimap(keyMapper, valueMapper, HashSet::new, MultimapCollectors::addSmallerToLarger);
+    }
+
+    public static <T, K, V, C extends Collection<V>> Collector<T, ?, Map<K, C>> toMultimap(
+            Function<? super T, ? extends K> keyMapper, Function<? super T, ? extends V> valueMapper,
+            Supplier<C> collectionFactory) {
+        return multimap(keyMapper, valueMapper, collectionFactory, MultimapCollectors::addLaterToEarlier);
+    }
+
+    /**
+     * One shared map of concurrent sets, filled by all threads of a parallel stream.
+     */
+    public static <T, K, V> Collector<T, ?, ConcurrentMap<K, Set<V>>> toConcurrentSetMultimap(
+            Function<? super T, ? extends K> keyMapper, Function<? super T, ? extends V> valueMapper) {
+        return Collector.of(
+                ConcurrentHashMap<K, Set<V>>::new,
+                (map, t) -> {
+                    K key = keyMapper.apply(t);
+                    Set<V> values = map.get(key);
+                    if (values == null) {
+                        values = map.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet());
+                    }
+                    values.add(valueMapper.apply(t));
+                },
+                (a, b) -> {
+                    b.forEach((k, values) -> a.merge(k, values, MultimapCollectors::addSmallerToLarger));
+                    return a;
+                },
+                Collector.Characteristics.IDENTITY_FINISH,
+                Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED);
+    }
+
+    private static <T, K, V, C extends Collection<V>> Collector<T, ?, Map<K, C>> multimap(
+            Function<? super T, ? extends K> keyMapper, Function<? super T, ? extends V> valueMapper,
+            Supplier<C> collectionFactory, BinaryOperator<C> mergeValues) {
+        return Collector.of(
+                HashMap<K, C>::new,
+                (map, t) -> map.computeIfAbsent(keyMapper.apply(t), k -> collectionFactory.get())
+                        .add(valueMapper.apply(t)),
+                (a, b) -> {
+                    b.forEach((k, values) -> a.merge(k, values, mergeValues));
+                    return a;
+                },
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    private static <V, C extends Collection<V>> C addLaterToEarlier(C a, C b) {
+        a.addAll(b);
+        return a;
+    }
+
+    private static <V, C extends Collection<V>> C addSmallerToLarger(C a, C b) {
+        if (a.size() < b.size()) {
+            b.addAll(a);
+            return b;
+        }
+        a.addAll(b);
+        return a;
+    }
+}
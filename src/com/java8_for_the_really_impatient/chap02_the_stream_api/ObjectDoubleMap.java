@@ -0,0 +1,65 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * An object-to-{@code double} hash map without boxed values or entry objects, as
+ * produced by {@link PrimitiveGroupingCollectors}.
+ */
+public class ObjectDoubleMap<K> extends ObjectHashKeys<K> {
+
+    private double[] values = new double[capacity()];
+
+    public double get(Object key, double defaultValue) {
+        int slot = find(key);
+        return slot < 0 ? defaultValue : values[slot];
+    }
+
+    public void put(K key, double value) {
+        int slot = insert(key);
+        values[slot < 0 ? ~slot : slot] = value;
+    }
+
+    public double addTo(K key, double delta) {
+        int slot = insert(key);
+        return slot < 0 ? (values[~slot] = delta) : (values[slot] += delta);
+    }
+
+    /**
+     * Stores {@code value} for a new key, otherwise {@code op(current, value)}.
+     */
+    public double accumulate(K key, double value, DoubleBinaryOperator op) {
+        int slot = insert(key);
+        return slot < 0 ? (values[~slot] = value) : (values[slot] = op.applyAsDouble(values[slot], value));
+    }
+
+    public ObjectDoubleMap<K> merge(ObjectDoubleMap<K> other, DoubleBinaryOperator op) {
+        other.forEach((k, v) -> accumulate(k, v, op));
+        return this;
+    }
+
+    public void forEach(ObjDoubleConsumer<? super K> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) action.accept(keyAt(i), values[i]);
+        }
+    }
+
+    /** A boxed copy, for code that needs a {@code Map}. */
+    public Map<K, Double> toMap() {
+        Map<K, Double> map = new HashMap<>();
+        forEach(map::put);
+        return map;
+    }
+
+    @Override
+    void rehash(int capacity, int[] moves) {
+        double[] moved = new double[capacity];
+        for (int i = 0; i < moves.length; i++) {
+            if (moves[i] >= 0) moved[moves[i]] = values[i];
+        }
+        values = moved;
+    }
+}
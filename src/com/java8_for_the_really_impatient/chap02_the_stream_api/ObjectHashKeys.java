@@ -0,0 +1,102 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.Arrays;
+
+/**
+ * The key half of an open-addressing (linear probing) map from objects to primitive
+ * columns. Subclasses keep one primitive array per column, indexed by slot, and move
+ * their values when the table grows.
+ */
+abstract class ObjectHashKeys<K> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    Object[] keys;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    ObjectHashKeys() {
+        keys = new Object[DEFAULT_CAPACITY];
+        mask = DEFAULT_CAPACITY - 1;
+        resizeAt = (int) (DEFAULT_CAPACITY * LOAD_FACTOR);
+    }
+
+    /** Replaces the columns; {@code moves[old]} is the new slot of each occupied old slot. */
+    abstract void rehash(int capacity, int[] moves);
+
+    int capacity() {
+        return keys.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(Object key) {
+        return find(key) >= 0;
+    }
+
+    int find(Object key) {
+        if (key == null) throw new NullPointerException("null key");
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            Object k = keys[i];
+            if (k == null) return -1;
+            if (k.equals(key)) return i;
+        }
+    }
+
+    /** The slot of {@code key}, or {@code ~slot} if it was just inserted. */
+    int insert(K key) {
+        if (key == null) throw new NullPointerException("null key");
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            Object k = keys[i];
+            if (k == null) {
+                if (size >= resizeAt) {
+                    grow();
+                    return insert(key);
+                }
+                keys[i] = key;
+                size++;
+                return ~i;
+            }
+            if (k.equals(key)) return i;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    K keyAt(int slot) {
+        return (K) keys[slot];
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        Object[] oldKeys = keys;
+        int[] moves = new int[oldKeys.length];
+        Arrays.fill(moves, -1);
+        keys = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+        for (int j = 0; j < oldKeys.length; j++) {
+            Object k = oldKeys[j];
+            if (k == null) continue;
+            int i = hash(k) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = k;
+            moves[j] = i;
+        }
+        rehash(capacity, moves);
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,65 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongBinaryOperator;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * An object-to-{@code long} hash map without boxed values or entry objects, as
+ * produced by {@link PrimitiveGroupingCollectors}.
+ */
+public class ObjectLongMap<K> extends ObjectHashKeys<K> {
+
+    private long[] values = new long[capacity()];
+
+    public long get(Object key, long defaultValue) {
+        int slot = find(key);
+        return slot < 0 ? defaultValue : values[slot];
+    }
+
+    public void put(K key, long value) {
+        int slot = insert(key);
+        values[slot < 0 ? ~slot : slot] = value;
+    }
+
+    public long addTo(K key, long delta) {
+        int slot = insert(key);
+        return slot < 0 ? (values[~slot] = delta) : (values[slot] += delta);
+    }
+
+    /**
+     * Stores {@code value} for a new key, otherwise {@code op(current, value)}.
+     */
+    public long accumulate(K key, long value, LongBinaryOperator op) {
+        int slot = insert(key);
+        return slot < 0 ? (values[~slot] = value) : (values[slot] = op.applyAsLong(values[slot], value));
+    }
+
+    public ObjectLongMap<K> merge(ObjectLongMap<K> other, LongBinaryOperator op) {
+        other.forEach((k, v) -> accumulate(k, v, op));
+        return this;
+    }
+
+    public void forEach(ObjLongConsumer<? super K> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) action.accept(keyAt(i), values[i]);
+        }
+    }
+
+    /** A boxed copy, for code that needs a {@code Map}. */
+    public Map<K, Long> toMap() {
+        Map<K, Long> map = new HashMap<>();
+        forEach(map::put);
+        return map;
+    }
+
+    @Override
+    void rehash(int capacity, int[] moves) {
+        long[] moved = new long[capacity];
+        for (int i = 0; i < moves.length; i++) {
+            if (moves[i] >= 0) moved[moves[i]] = values[i];
+        }
+        values = moved;
+    }
+}
@@ -0,0 +1,71 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A function defined on part of the doubles, like {@code StreamAPI.inverse} and
+ * {@code squareRoot} but without an {@code Optional} per call: a
+ * {@link DoubleBatchPipeline} runs it over an array and clears the validity bit of
+ * every lane outside its domain.
+ */
+public interface PartialDoubleFunction {
+
+    boolean isDefinedAt(double x);
+
+    /** Only called where {@link #isDefinedAt} holds, except by the built-in kernels. */
+    double apply(double x);
+
+    /**
+     * Applies this function to {@code values[from, to)} and clears the bits of the
+     * lanes where it is undefined. {@code from} is a multiple of 64, so the lanes of
+     * one {@code validity} word are never split between two calls.
+     */
+    default void applyTo(double[] values, long[] validity, int from, int to) {
+        for (int base = from; base < to; base += 64) {
+            int end = Math.min(base + 64, to);
+            long bits = 0;
+            for (int i = base; i < end; i++) {
+                double x = values[i];
+                if (isDefinedAt(x)) {
+                    bits |= 1L << (i - base);
+                    values[i] = apply(x);
+                }
+            }
+            validity[base >>> 6] &= bits;
+        }
+    }
+
+    static PartialDoubleFunction of(DoublePredicate domain, DoubleUnaryOperator f) {
+        return new PartialDoubleFunction() {
+            @Override
+            public boolean isDefinedAt(double x) {
+                return domain.test(x);
+            }
+
+            @Override
+            public double apply(double x) {
+                return f.applyAsDouble(x);
+            }
+        };
+    }
+
+    static PartialDoubleFunction total(DoubleUnaryOperator f) {
+        return of(x -> true, f);
+    }
+
+    /** {@code 1 / x}, undefined at 0. */
+    static PartialDoubleFunction inverse() {
+        return DoubleKernels.INVERSE;
+    }
+
+    /** {@code Math.sqrt(x)}, undefined below 0; NaN stays a defined NaN, as in {@code squareRoot}. */
+    static PartialDoubleFunction squareRoot() {
+        return DoubleKernels.SQUARE_ROOT;
+    }
+
+    /** {@code Math.log(x)}, undefined at 0 and below; NaN stays a defined NaN. */
+    static PartialDoubleFunction log() {
+        return DoubleKernels.LOG;
+    }
+}
@@ -0,0 +1,90 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Person rows stored column by column: the id as an {@code int} and the name as a
+ * dictionary code.
+ */
+public class PersonTable extends ColumnarTable {
+
+    private final StringDictionary names = new StringDictionary();
+    private int[] ids = new int[0];
+    private int[] nameCodes = new int[0];
+
+    static PersonTable of(Collection<StreamAPI.Person> persons) {
+        PersonTable table = new PersonTable();
+        for (StreamAPI.Person person : persons) {
+            table.add(person.getId(), person.getName());
+        }
+        return table;
+    }
+
+    public void add(int id, String name) {
+        if (rows == ids.length) {
+            int capacity = grownCapacity(rows);
+            ids = Arrays.copyOf(ids, capacity);
+            nameCodes = Arrays.copyOf(nameCodes, capacity);
+        }
+        ids[rows] = id;
+        nameCodes[rows] = names.encode(name);
+        rows++;
+    }
+
+    public int getId(int row) {
+        return ids[checkRow(row)];
+    }
+
+    public String getName(int row) {
+        return names.decode(nameCodes[checkRow(row)]);
+    }
+
+    public long countNamed(String name) {
+        int code = names.lookup(name);
+        if (code < 0) return 0;
+        int[] nameCodes = this.nameCodes;
+        return sum((from, to) -> {
+            long count = 0;
+            for (int i = from; i < to; i++) {
+                if (nameCodes[i] == code) count++;
+            }
+            return count;
+        });
+    }
+
+    /** The ids of the rows named {@code name}, in row order. */
+    public int[] idsNamed(String name) {
+        int code = names.lookup(name);
+        if (code < 0) return new int[0];
+        int[] ids = this.ids;
+        int[] nameCodes = this.nameCodes;
+        return IntStream.range(0, rows).parallel().filter(i -> nameCodes[i] == code).map(i -> ids[i]).toArray();
+    }
+
+    /**
+     * Like {@code toMap(Person::getId, Person::getName)}, including the
+     * {@code IllegalStateException} on a duplicate id.
+     */
+    public Map<Integer, String> idToName() {
+        Map<Integer, String> map = new HashMap<>();
+        for (int i = 0; i < rows; i++) {
+            if (map.putIfAbsent(ids[i], names.decode(nameCodes[i])) != null) {
+                throw new IllegalStateException("Duplicate id " + ids[i]);
+            }
+        }
+        return map;
+    }
+
+    public Map<String, Long> countByName() {
+        int[] nameCodes = this.nameCodes;
+        return decode(groupSum(names.size(), (sums, from, to) -> {
+            for (int i = from; i < to; i++) {
+                sums.add(nameCodes[i], 1);
+            }
+        }), names);
+    }
+}
@@ -0,0 +1,81 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A registry of {@link StageMetrics}, keyed by pipeline and stage name. Running the
+ * same instrumented pipeline again adds to the same counters.
+ */
+public class PipelineMetrics {
+
+    private static final PipelineMetrics GLOBAL = new PipelineMetrics();
+
+    private final Map<String, StageMetrics> stages = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    public static PipelineMetrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Starts instrumenting {@code stream} as pipeline {@code name}; the returned
+     * wrapper records each stage added through it.
+     */
+    public <T> InstrumentedStream<T> instrument(String name, Stream<T> stream) {
+        return InstrumentedStream.of(this, name, stream);
+    }
+
+    public InstrumentedIntStream instrument(String name, IntStream stream) {
+        return InstrumentedIntStream.of(this, name, stream);
+    }
+
+    public StageMetrics get(String pipeline, String stage) {
+        return stages.get(key(pipeline, stage));
+    }
+
+    public SourceMetrics getSource(String pipeline) {
+        return (SourceMetrics) get(pipeline, "source");
+    }
+
+    /** All stages, in order of registration. */
+    public List<StageMetrics> getStages() {
+        synchronized (stages) {
+            return new ArrayList<>(stages.values());
+        }
+    }
+
+    public void reset() {
+        for (StageMetrics stage : getStages()) {
+            stage.reset();
+        }
+    }
+
+    public String report() {
+        StringBuilder report = new StringBuilder(String.format("%-16s %-16s %12s %12s %8s %10s %12s%n",
+                "pipeline", "stage", "in", "out", "select", "ms", "elem/s"));
+        for (StageMetrics stage : getStages()) {
+            report.append(stage.reportLine()).append(System.lineSeparator());
+        }
+        return report.toString();
+    }
+
+    StageMetrics stage(String pipeline, String stage) {
+        if (stage.equals("source")) {
+            throw new IllegalArgumentException("Stage name 'source' is reserved");
+        }
+        return stages.computeIfAbsent(key(pipeline, stage), k -> new StageMetrics(pipeline, stage));
+    }
+
+    SourceMetrics source(String pipeline) {
+        return (SourceMetrics) stages.computeIfAbsent(key(pipeline, "source"), k -> new SourceMetrics(pipeline));
+    }
+
+    private static String key(String pipeline, String stage) {
+        return pipeline + '\u0000' + stage;
+    }
+}
@@ -0,0 +1,101 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+
+/**
+ * {@code groupingBy} with a primitive downstream, such as
+ * {@code groupingBy(City::getState, summingInt(City::getPopulation))}, collected
+ * into open-addressing maps with primitive value columns instead of boxed partial
+ * results. The partial maps of parallel splits are merged key by key.
+ */
+public final class PrimitiveGroupingCollectors {
+
+    private PrimitiveGroupingCollectors() {}
+
+    public static <T, K> Collector<T, ?, ObjectLongMap<K>> counting(
+            Function<? super T, ? extends K> classifier) {
+        return Collector.of(ObjectLongMap<K>::new,
+                (map, t) -> map.addTo(classifier.apply(t), 1),
+                (a, b) -> a.merge(b, Long::sum),
+                Collector.Characteristics.IDENTITY_FINISH, Collector.Characteristics.UNORDERED);
+    }
+
+    public static <T, K> Collector<T, ?, ObjectLongMap<K>> summingInt(
+            Function<? super T, ? extends K> classifier, ToIntFunction<? super T> mapper) {
+        return summingLong(classifier, mapper::applyAsInt);
+    }
+
+    public static <T, K> Collector<T, ?, ObjectLongMap<K>> summingLong(
+            Function<? super T, ? extends K> classifier, ToLongFunction<? super T> mapper) {
+        return Collector.of(ObjectLongMap<K>::new,
+                (map, t) -> map.addTo(classifier.apply(t), mapper.applyAsLong(t)),
+                (a, b) -> a.merge(b, Long::sum),
+                Collector.Characteristics.IDENTITY_FINISH, Collector.Characteristics.UNORDERED);
+    }
+
+    public static <T, K> Collector<T, ?, ObjectDoubleMap<K>> summingDouble(
+            Function<? super T, ? extends K> classifier, ToDoubleFunction<? super T> mapper) {
+        return Collector.of(ObjectDoubleMap<K>::new,
+                (map, t) -> map.addTo(classifier.apply(t), mapper.applyAsDouble(t)),
+                (a, b) -> a.merge(b, Double::sum),
+                Collector.Characteristics.IDENTITY_FINISH, Collector.Characteristics.UNORDERED);
+    }
+
+    /** Groups without any element have no entry, where {@code minBy} would map to an empty Optional. */
+    public static <T, K> Collector<T, ?, ObjectLongMap<K>> minLong(
+            Function<? super T, ? extends K> classifier, ToLongFunction<? super T> mapper) {
+        return Collector.of(ObjectLongMap<K>::new,
+                (map, t) -> map.accumulate(classifier.apply(t), mapper.applyAsLong(t), Math::min),
+                (a, b) -> a.merge(b, Math::min),
+                Collector.Characteristics.IDENTITY_FINISH, Collector.Characteristics.UNORDERED);
+    }
+
+    public static <T, K> Collector<T, ?, ObjectLongMap<K>> maxLong(
+            Function<? super T, ? extends K> classifier, ToLongFunction<? super T> mapper) {
+        return Collector.of(ObjectLongMap<K>::new,
+                (map, t) -> map.accumulate(classifier.apply(t), mapper.applyAsLong(t), Math::max),
+                (a, b) -> a.merge(b, Math::max),
+                Collector.Characteristics.IDENTITY_FINISH, Collector.Characteristics.UNORDERED);
+    }
+
+    public static <T, K> Collector<T, ?, ObjectDoubleMap<K>> minDouble(
+            Function<? super T, ? extends K> classifier, ToDoubleFunction<? super T> mapper) {
+        return Collector.of(ObjectDoubleMap<K>::new,
+                (map, t) -> map.accumulate(classifier.apply(t), mapper.applyAsDouble(t), Math::min),
+                (a, b) -> a.merge(b, Math::min),
+                Collector.Characteristics.IDENTITY_FINISH, Collector.Characteristics.UNORDERED);
+    }
+
+    public static <T, K> Collector<T, ?, ObjectDoubleMap<K>> maxDouble(
+            Function<? super T, ? extends K> classifier, ToDoubleFunction<? super T> mapper) {
+        return Collector.of(ObjectDoubleMap<K>::new,
+                (map, t) -> map.accumulate(classifier.apply(t), mapper.applyAsDouble(t), Math::max),
+                (a, b) -> a.merge(b, Math::max),
+                Collector.Characteristics.IDENTITY_FINISH, Collector.Characteristics.UNORDERED);
+    }
+
+    public static <T, K> Collector<T, ?, LongStatisticsMap<K>> summarizingInt(
+            Function<? super T, ? extends K> classifier, ToIntFunction<? super T> mapper) {
+        return summarizingLong(classifier, mapper::applyAsInt);
+    }
+
+    public static <T, K> Collector<T, ?, LongStatisticsMap<K>> summarizingLong(
+            Function<? super T, ? extends K> classifier, ToLongFunction<? super T> mapper) {
+        return Collector.of(LongStatisticsMap<K>::new,
+                (map, t) -> map.accept(classifier.apply(t), mapper.applyAsLong(t)),
+                LongStatisticsMap::merge,
+                Collector.Characteristics.IDENTITY_FINISH, Collector.Characteristics.UNORDERED);
+    }
+
+    public static <T, K> Collector<T, ?, DoubleStatisticsMap<K>> summarizingDouble(
+            Function<? super T, ? extends K> classifier, ToDoubleFunction<? super T> mapper) {
+        return Collector.of(DoubleStatisticsMap<K>::new,
+                (map, t) -> map.accept(classifier.apply(t), mapper.applyAsDouble(t)),
+                DoubleStatisticsMap::merge,
+                Collector.Characteristics.IDENTITY_FINISH, Collector.Characteristics.UNORDERED);
+    }
+}
@@ -0,0 +1,192 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+/**
+ * {@code Collectors.joining(delimiter)} written to a {@link Writer}, a
+ * {@link WritableByteChannel} or a {@link ByteBuffer} instead of returned as one
+ * {@code String}. Text goes out in chunks of {@value ChunkedText#CHUNK_CHARS} chars,
+ * encoded as it goes for byte sinks.
+ *
+ * The {@code writeJoined} methods never hold the joined text: they write through one
+ * chunk buffer as elements arrive in encounter order. On a parallel stream that order
+ * comes from {@code forEachOrdered}, which passes on each split's elements as soon as
+ * every earlier split is done, so only elements that finish ahead of their turn wait.
+ * They take the stream rather than being collectors because a collector is not told
+ * which split a container belongs to, so it could write nothing before its finisher.
+ *
+ * {@link #toSegments} is the in-memory counterpart: ordered {@link CharSegments} per
+ * split, linked together without copying.
+ *
+ * The {@code writeJoined} methods return the number of chars written. I/O errors are
+ * rethrown as {@link UncheckedIOException}.
+ */
+public final class SinkCollectors {
+
+    private static final int BYTE_BUFFER_SIZE = 64 << 10;
+
+    private SinkCollectors() {}
+
+    public static Collector<CharSequence, ?, CharSegments> toSegments(CharSequence delimiter) {
+        return Collector.of(
+                CharSegments::new,
+                (segments, s) -> segments.appendElement(delimiter, s),
+                (a, b) -> a.merge(b, delimiter),
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    public static long writeJoined(Stream<? extends CharSequence> stream, Writer out, CharSequence delimiter) {
+        return write(stream, new WriterSink(out), delimiter);
+    }
+
+    public static long writeJoined(Stream<? extends CharSequence> stream, WritableByteChannel out, Charset charset,
+                                   CharSequence delimiter) {
+        return write(stream, new ChannelSink(out, charset), delimiter);
+    }
+
+    /**
+     * Throws {@code BufferOverflowException} if the encoded text does not fit.
+     */
+    public static long writeJoined(Stream<? extends CharSequence> stream, ByteBuffer out, Charset charset,
+                                   CharSequence delimiter) {
+        return write(stream, new BufferSink(out, charset), delimiter);
+    }
+
+    // forEachOrdered runs the action one element at a time, so the sink needs no lock
+    private static long write(Stream<? extends CharSequence> stream, Sink sink, CharSequence delimiter) {
+        stream.forEachOrdered(s -> sink.appendElement(delimiter, s));
+        return sink.finish();
+    }
+
+    private abstract static class Sink extends ChunkedText {
+        /** Writes out everything appended, returning its length in chars. */
+        abstract long finish();
+    }
+
+    private static class WriterSink extends Sink {
+        private final Writer out;
+
+        WriterSink(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        char[] emit(char[] chunk, int count) {
+            try {
+                out.write(chunk, 0, count);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return chunk;
+        }
+
+        @Override
+        long finish() {
+            flushChunk();
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return length;
+        }
+    }
+
+    /**
+     * Encodes chunks into a byte buffer, calling {@link #drain} whenever it fills up
+     * and once at the end.
+     */
+    private abstract static class EncodingSink extends Sink {
+        private final CharsetEncoder encoder;
+        final ByteBuffer bytes;
+
+        EncodingSink(Charset charset, ByteBuffer bytes) {
+            this.encoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.bytes = bytes;
+        }
+
+        /** Makes room in {@code bytes}; at the end, {@code bytes} need not be full. */
+        abstract void drain(boolean end);
+
+        @Override
+        char[] emit(char[] chunk, int count) {
+            encode(CharBuffer.wrap(chunk, 0, count), false);
+            return chunk;
+        }
+
+        @Override
+        long finish() {
+            flushChunk();
+            encode(CharBuffer.allocate(0), true);
+            while (encoder.flush(bytes).isOverflow()) {
+                drain(false);
+            }
+            drain(true);
+            return length;
+        }
+
+        private void encode(CharBuffer chars, boolean endOfInput) {
+            while (true) {
+                CoderResult result = encoder.encode(chars, bytes, endOfInput);
+                if (result.isUnderflow()) return;
+                if (result.isOverflow()) {
+                    drain(false);
+                } else {
+                    try {
+                        result.throwException();
+                    } catch (CharacterCodingException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }
+        }
+    }
+
+    private static class ChannelSink extends EncodingSink {
+        private final WritableByteChannel out;
+
+        ChannelSink(WritableByteChannel out, Charset charset) {
+            super(charset, ByteBuffer.allocateDirect(BYTE_BUFFER_SIZE));
+            this.out = out;
+        }
+
+        @Override
+        void drain(boolean end) {
+            bytes.flip();
+            try {
+                while (bytes.hasRemaining()) {
+                    out.write(bytes);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            bytes.clear();
+        }
+    }
+
+    private static class BufferSink extends EncodingSink {
+        BufferSink(ByteBuffer out, Charset charset) {
+            super(charset, out);
+        }
+
+        @Override
+        void drain(boolean end) {
+            if (!end) throw new BufferOverflowException();
+        }
+    }
+}
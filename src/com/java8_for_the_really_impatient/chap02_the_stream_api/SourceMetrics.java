@@ -0,0 +1,50 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of an instrumented pipeline's source: how often it was split, and how long
+ * each bulk traversal of a split (one leaf task of a parallel stream, including the
+ * downstream stages it pushes into) took.
+ */
+public class SourceMetrics extends StageMetrics {
+
+    final LongAdder splits = new LongAdder();
+    final LongAdder tasks = new LongAdder();
+    final LongAccumulator maxTaskNanos = new LongAccumulator(Math::max, 0);
+
+    SourceMetrics(String pipeline) {
+        super(pipeline, "source");
+    }
+
+    /** A source has no input; this is the number of elements it produced. */
+    @Override
+    public long getInputCount() {
+        return getOutputCount();
+    }
+
+    public long getSplits() { return splits.sum(); }
+    public long getTasks() { return tasks.sum(); }
+    public long getMaxTaskNanos() { return maxTaskNanos.get(); }
+
+    /** The mean task time; a max far above it points at unbalanced splits. */
+    public double getMeanTaskNanos() {
+        long tasks = getTasks();
+        return tasks == 0 ? Double.NaN : (double) getNanos() / tasks;
+    }
+
+    @Override
+    void reset() {
+        super.reset();
+        splits.reset();
+        tasks.reset();
+        maxTaskNanos.reset();
+    }
+
+    @Override
+    String reportLine() {
+        return super.reportLine() + String.format("  splits=%d tasks=%d meanTask=%.1fms maxTask=%.1fms",
+                getSplits(), getTasks(), getMeanTaskNanos() / 1e6, getMaxTaskNanos() / 1e6);
+    }
+}
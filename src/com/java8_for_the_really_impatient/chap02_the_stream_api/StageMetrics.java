@@ -0,0 +1,53 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for one stage of an instrumented pipeline: elements in and out, and the
+ * time spent in the stage's own function. All counters are {@link LongAdder}s, so
+ * parallel workers update them without contending.
+ */
+public class StageMetrics {
+
+    private final String pipeline;
+    private final String stage;
+    final LongAdder in = new LongAdder();
+    final LongAdder out = new LongAdder();
+    final LongAdder nanos = new LongAdder();
+
+    StageMetrics(String pipeline, String stage) {
+        this.pipeline = pipeline;
+        this.stage = stage;
+    }
+
+    public String getPipeline() { return pipeline; }
+    public String getStage() { return stage; }
+    public long getInputCount() { return in.sum(); }
+    public long getOutputCount() { return out.sum(); }
+    public long getNanos() { return nanos.sum(); }
+
+    /** Output elements per input element: below 1 for filters, above for flatMaps. */
+    public double getSelectivity() {
+        long in = getInputCount();
+        return in == 0 ? Double.NaN : (double) getOutputCount() / in;
+    }
+
+    /** Input elements per second of stage time, summed over threads. */
+    public double getThroughput() {
+        long nanos = getNanos();
+        return nanos == 0 ? Double.NaN : getInputCount() * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    void reset() {
+        in.reset();
+        out.reset();
+        nanos.reset();
+    }
+
+    String reportLine() {
+        return String.format("%-16s %-16s %12d %12d %8.3f %10.1f %12.0f",
+                pipeline, stage, getInputCount(), getOutputCount(), getSelectivity(),
+                getNanos() / 1e6, getThroughput());
+    }
+}
@@ -1,6 +1,7 @@
 package com.java8_for_the_really_impatient.chap02_the_stream_api;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.math.BigInteger;
 import java.util.*;
 import java.util.concurrent.ConcurrentMap;
@@ -44,7 +45,7 @@ public class StreamAPI {
     }
 
 
-    private static class Person {
+    static class Person {
         int id;
         String name;
 
@@ -60,7 +61,7 @@ public class StreamAPI {
     }
 
 
-    private static class City {
+    static class City {
         String state;
         String name;
         int population;
@@ -100,10 +101,18 @@ public class StreamAPI {
         Stream<Double> randoms = Stream.generate(Math::random).limit(100);
 
         Stream<BigInteger> integers = Stream.iterate(BigInteger.ZERO, n -> n.add(BigInteger.ONE));
+        Stream<BigInteger> firstMillionIntegers = Generators.iterate(BigInteger.ZERO, n -> n.add(BigInteger.ONE),
+                (n, steps) -> n.add(BigInteger.valueOf(steps)), 1_000_000).parallel();
 
 //        Path path = Paths.get("alice.txt");
 //        try (Stream<String> lines = Files.lines(path)) {
 //
+//        }
+//        try (Stream<String> lines = MappedText.lines(path)) {
+//            long longLines = lines.parallel().filter(l -> l.length() > 80).count();
+//        }
+//        try (Stream<String> words = MappedText.words(path)) {
+//            long longWords = words.parallel().filter(w -> w.length() > 12).count();
 //        }
 
         Stream<String> wordListStream = wordList.stream();
@@ -113,6 +122,8 @@ public class StreamAPI {
 
         Stream<Stream<Character>> streamOfCharStreams = wordList.stream().map(w -> characterStream(w));
         Stream<Character> letters = wordList.stream().flatMap(w -> characterStream(w));
+        IntStream letterCodes = CharStreams.chars(wordList.stream());
+        long[] letterCounts = wordList.parallelStream().collect(CharStreams.letterHistogram());
 
         Stream<Character> combined = Stream.concat(
                 characterStream("Hello"), characterStream("World")
@@ -123,10 +134,22 @@ public class StreamAPI {
                 .limit(20)
                 .toArray();
 
+        long instrumentedCount = PipelineMetrics.global().instrument("words", wordList.parallelStream())
+                .filter("long", w -> w.length() > 12)
+                .map("lower", String::toLowerCase)
+                .stream()
+                .count();
+        String metricsReport = PipelineMetrics.global().report();
+
         Stream<String> uniqueWords = Stream.of("merrily", "merrily", "merrily", "gently")
                 .distinct();
+        Stream<String> probablyUniqueWords = BloomFilter.distinct(
+                Stream.of("merrily", "merrily", "merrily", "gently"), 1_000_000, 0.001);
+        long distinctWordCount = wordList.parallelStream().collect(HyperLogLog.countDistinct());
 
         Stream<String> longestFirst = wordList.stream().sorted(Comparator.comparing(String::length).reversed());
+        List<String> tenLongest = wordList.parallelStream().collect(
+                TopCollectors.greatest(10, Comparator.comparing(String::length)));
 
         Optional<String> largest = wordList.stream().max(String::compareToIgnoreCase);
         if (largest.isPresent()) {
@@ -158,6 +181,10 @@ public class StreamAPI {
         double x = 100;
         Double sqrtOfInverse = inverse(x).flatMap(StreamAPI::squareRoot).get();
         Double sqrtOfInverse2 = Optional.of(x).flatMap(StreamAPI::inverse).flatMap(StreamAPI::squareRoot).get();
+        DoubleBatch sqrtsOfInverses = DoubleBatchPipeline.identity()
+                .then(PartialDoubleFunction.inverse())
+                .then(PartialDoubleFunction.squareRoot())
+                .applyParallel(new double[] { 4, 0, -1, 0.25 });
 
         List<Integer> values = Arrays.asList(1, 2, 3, 4, 5);
         Stream<Integer> valueStream = values.stream();
@@ -176,6 +203,8 @@ public class StreamAPI {
 
         String joined = wordList.stream().collect(Collectors.joining());
         joined = wordList.stream().collect(Collectors.joining(", "));
+        StringWriter joinedOut = new StringWriter();
+        long joinedLength = SinkCollectors.writeJoined(wordList.stream(), joinedOut, ", ");
 
         Object[] objects = new Object[2];
         objects[0] = new Object();
@@ -198,6 +227,12 @@ public class StreamAPI {
         List<Person> personList = Arrays.asList(persons);
         Map<Integer, String> idToName = people.collect(Collectors.toMap(Person::getId, Person::getName));
         Map<Integer, Person> idToPerson = personList.stream().collect(Collectors.toMap(Person::getId, Function.identity()));
+        PersonTable personTable = PersonTable.of(personList);
+        Map<Integer, String> idToNameFromTable = personTable.idToName();
+        IdIndex<Person> idToPersonIndex = personList.stream().collect(
+                IdIndexCollectors.toIdIndex(Person::getId, Function.identity()));
+        IdIndex<String> idToNameIndex = personList.parallelStream().collect(
+                IdIndexCollectors.toIdIndex(Person::getId, Person::getName, IdIndex.DuplicatePolicy.KEEP_FIRST));
 
         Locale[] availableLocales = Locale.getAvailableLocales();
         List<Locale> locales = Arrays.asList(availableLocales);
@@ -220,6 +255,12 @@ public class StreamAPI {
                             return r;
                         }));
 
+        LocaleDisplayCache displayCache = LocaleDisplayCache.of(locales, Locale.getDefault(Locale.Category.DISPLAY));
+        countryToLanguageSets = displayCache.stream().collect(
+                MultimapCollectors.toSetMultimap(
+                        LocaleDisplayCache.Entry::getDisplayCountry,
+                        LocaleDisplayCache.Entry::getDisplayLanguage));
+
         idToPerson = personList.stream().collect(
                 Collectors.toMap(
                         Person::getId,
@@ -249,9 +290,13 @@ public class StreamAPI {
 
         Map<String, Integer> stateToCityPopulation = cities.stream().collect(
                 Collectors.groupingBy(City::getState, Collectors.summingInt(City::getPopulation)));
+        CityTable cityTable = CityTable.of(cities);
+        Map<String, Long> stateToCityPopulationFromTable = cityTable.populationByState();
 
 //        Map<String, City> stateToLargestCity = cities.stream().collect(
 //                Collectors.groupingBy(City::getState, Collectors.maxBy(Comparator.comparingInt(City::getPopulation))));
+        Map<String, List<City>> stateToThreeLargestCities = cities.stream().collect(
+                TopCollectors.greatestByGroup(City::getState, 3, Comparator.comparingInt(City::getPopulation)));
 
         Map<String, Optional<String>> stateToLongestCityName = cities.stream().collect(
                 Collectors.groupingBy(City::getState,
@@ -268,6 +313,11 @@ public class StreamAPI {
                 Collectors.groupingBy(City::getState,
                         Collectors.summarizingInt(City::getPopulation)));
 
+        ObjectLongMap<String> statePopulations = cities.parallelStream().collect(
+                PrimitiveGroupingCollectors.summingInt(City::getState, City::getPopulation));
+        LongStatisticsMap<String> statePopulationSummary = cities.parallelStream().collect(
+                PrimitiveGroupingCollectors.summarizingInt(City::getState, City::getPopulation));
+
         Map<String, String> stateToCityNames = cities.stream().collect(
                 Collectors.groupingBy(City::getState,
                         Collectors.reducing("", City::getName,
@@ -324,9 +374,15 @@ public class StreamAPI {
 
         Stream<Integer> infiniteIntegers = Stream.generate(random::nextInt);
         Stream<Integer> sample = infiniteIntegers.parallel().unordered().limit(10);
+        Stream<Integer> splittableSample = Generators.random(10, SplittableRandom::nextInt).parallel();
+        double pi = Generators.monteCarloPi(10_000_000, 42);
 
 //        Map<String, List<String>> citiesByState = cities.stream().parallel().collect(
 //                Collectors.groupingByConcurrent(City::getState));
+        ConcurrentMap<String, List<City>> citiesByState = cities.parallelStream().collect(
+                ConcurrentGroupingCollectors.groupingByConcurrent(City::getState));
+        ConcurrentMap<String, Long> cityCountsByState = cities.parallelStream().collect(
+                ConcurrentGroupingCollectors.groupingByStriped(City::getState, Collectors.counting(), 8));
     }
 
 }
@@ -0,0 +1,45 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns each distinct string a dense {@code int} code, in order of first
+ * appearance, so columns can store codes instead of references. Not thread-safe
+ * while strings are being added; read-only use afterwards is.
+ */
+public final class StringDictionary {
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] values = new String[16];
+
+    public int encode(String value) {
+        Integer code = codes.get(value);
+        if (code != null) return code;
+        int next = codes.size();
+        if (next == values.length) {
+            values = Arrays.copyOf(values, 2 * next);
+        }
+        values[next] = value;
+        codes.put(value, next);
+        return next;
+    }
+
+    /** The code of {@code value}, or -1 if it was never encoded. */
+    public int lookup(String value) {
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    public String decode(int code) {
+        if (code < 0 || code >= codes.size()) {
+            throw new IndexOutOfBoundsException("Invalid code: " + code);
+        }
+        return values[code];
+    }
+
+    public int size() {
+        return codes.size();
+    }
+}
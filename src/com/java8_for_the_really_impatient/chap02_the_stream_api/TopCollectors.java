@@ -0,0 +1,161 @@
+package com.java8_for_the_really_impatient.chap02_the_stream_api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * The first {@code k} elements of {@code sorted(comparator)}, without sorting (or
+ * buffering) the whole stream: each container is a heap of at most {@code k}
+ * elements, so a collection takes O(n log k) time and O(k) space per split.
+ *
+ * Equal elements are kept and listed in encounter order, so the result is exactly
+ * that of {@code sorted(comparator).limit(k)} (or the reversed equivalent).
+ */
+public final class TopCollectors {
+
+    private TopCollectors() {}
+
+    /**
+     * The {@code k} greatest elements, greatest first; like
+     * {@code sorted(comparator.reversed()).limit(k)}.
+     */
+    public static <T> Collector<T, ?, List<T>> greatest(int k, Comparator<? super T> comparator) {
+        return bounded(k, comparator);
+    }
+
+    /**
+     * The {@code k} least elements, least first; like {@code sorted(comparator).limit(k)}.
+     */
+    public static <T> Collector<T, ?, List<T>> least(int k, Comparator<? super T> comparator) {
+        return bounded(k, Collections.reverseOrder(comparator));
+    }
+
+    public static <T, K> Collector<T, ?, Map<K, List<T>>> greatestByGroup(
+            Function<? super T, ? extends K> classifier, int k, Comparator<? super T> comparator) {
+        return Collectors.groupingBy(classifier, greatest(k, comparator));
+    }
+
+    public static <T, K> Collector<T, ?, Map<K, List<T>>> leastByGroup(
+            Function<? super T, ? extends K> classifier, int k, Comparator<? super T> comparator) {
+        return Collectors.groupingBy(classifier, least(k, comparator));
+    }
+
+    private static <T> Collector<T, ?, List<T>> bounded(int k, Comparator<? super T> comparator) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        return Collector.of(
+                () -> new BoundedHeap<T>(k, comparator),
+                BoundedHeap::offer,
+                BoundedHeap::merge,
+                BoundedHeap::toList);
+    }
+
+    /**
+     * A min-heap of the greatest elements offered so far. Each element carries its
+     * position in encounter order, and of two equal elements the later one counts as
+     * smaller, so it is the one evicted.
+     */
+    private static class BoundedHeap<T> {
+        private final int k;
+        private final Comparator<? super T> comparator;
+        private Object[] heap = new Object[0];
+        private long[] positions = new long[0];
+        private int size;
+        private long offered;
+
+        BoundedHeap(int k, Comparator<? super T> comparator) {
+            this.k = k;
+            this.comparator = comparator;
+        }
+
+        void offer(T t) {
+            offer(t, offered++);
+        }
+
+        // the other heap holds the elements that follow this one's
+        BoundedHeap<T> merge(BoundedHeap<T> other) {
+            for (int i = 0; i < other.size; i++) {
+                offer(other.elementAt(i), offered + other.positions[i]);
+            }
+            offered += other.offered;
+            return this;
+        }
+
+        List<T> toList() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (i, j) -> compare(j, i));
+            List<T> list = new ArrayList<>(size);
+            for (int i : order) {
+                list.add(elementAt(i));
+            }
+            return list;
+        }
+
+        private void offer(T t, long position) {
+            if (size < k) {
+                if (size == heap.length) {
+                    int capacity = (int) Math.min(k, Math.max(16, 2L * size));
+                    heap = Arrays.copyOf(heap, capacity);
+                    positions = Arrays.copyOf(positions, capacity);
+                }
+                siftUp(size++, t, position);
+            } else if (k > 0 && compare(t, position, elementAt(0), positions[0]) > 0) {
+                siftDown(0, t, position);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private T elementAt(int i) {
+            return (T) heap[i];
+        }
+
+        private int compare(int i, int j) {
+            return compare(elementAt(i), positions[i], elementAt(j), positions[j]);
+        }
+
+        private int compare(T a, long aPosition, T b, long bPosition) {
+            int c = comparator.compare(a, b);
+            return c != 0 ? c : Long.compare(bPosition, aPosition);
+        }
+
+        private void siftUp(int i, T t, long position) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (compare(t, position, elementAt(parent), positions[parent]) >= 0) break;
+                heap[i] = heap[parent];
+                positions[i] = positions[parent];
+                i = parent;
+            }
+            heap[i] = t;
+            positions[i] = position;
+        }
+
+        private void siftDown(int i, T t, long position) {
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                int right = child + 1;
+                if (right < size && compare(right, child) < 0) {
+                    child = right;
+                }
+                if (compare(t, position, elementAt(child), positions[child]) <= 0) break;
+                heap[i] = heap[child];
+                positions[i] = positions[child];
+                i = child;
+            }
+            heap[i] = t;
+            positions[i] = position;
+        }
+    }
+}
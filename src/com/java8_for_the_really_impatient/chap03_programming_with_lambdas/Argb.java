@@ -0,0 +1,122 @@
+package com.java8_for_the_really_impatient.chap03_programming_with_lambdas;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Helpers for colors packed as non-premultiplied 0xAARRGGBB ints, plus packed
+ * counterparts of the {@code Color} operators used in {@link ProgrammingWithLambdas}.
+ */
+public final class Argb {
+
+    private static final double BRIGHTNESS_FACTOR = 0.7;
+
+    private Argb() {}
+
+    public static int alpha(int argb) { return argb >>> 24; }
+    public static int red(int argb) { return (argb >> 16) & 0xff; }
+    public static int green(int argb) { return (argb >> 8) & 0xff; }
+    public static int blue(int argb) { return argb & 0xff; }
+
+    public static int pack(int alpha, int red, int green, int blue) {
+        return (alpha << 24) | (red << 16) | (green << 8) | blue;
+    }
+
+    public static int clamp(int channel) {
+        return channel < 0 ? 0 : channel > 255 ? 255 : channel;
+    }
+
+    public static int clamp(double channel) {
+        return channel <= 0 ? 0 : channel >= 255 ? 255 : (int) (channel + 0.5);
+    }
+
+    /**
+     * Same as {@code c -> c.deriveColor(0, 1, factor, 1)}: scales the HSB brightness,
+     * keeping hue and saturation. Like JavaFX, this lifts black to a brightness of 0.05
+     * when {@code factor > 1}, and it follows the same {@code float} and HSB round trip
+     * so results match to the last bit.
+     */
+    public static IntUnaryOperator brighten(double factor) {
+        return argb -> {
+            double r = channel(red(argb)), g = channel(green(argb)), b = channel(blue(argb));
+            double max = Math.max(r, Math.max(g, b));
+            double min = Math.min(r, Math.min(g, b));
+            double saturation = max == 0 ? 0 : (max - min) / max;
+            double hue = saturation == 0 ? 0 : hue(r, g, b, max, min);
+            double brightness = max == 0 && factor > 1 ? 0.05 : max;
+            brightness = Math.max(Math.min(brightness * factor, 1.0), 0.0);
+            return fromHsb(alpha(argb), hue, saturation, brightness);
+        };
+    }
+
+    /** Same as {@code Color::brighter}. */
+    public static IntUnaryOperator brighter() {
+        return brighten(1.0 / BRIGHTNESS_FACTOR);
+    }
+
+    /** Same as {@code Color::darker}. */
+    public static IntUnaryOperator darker() {
+        return brighten(BRIGHTNESS_FACTOR);
+    }
+
+    /** Same as {@code Color::grayscale}. */
+    public static IntUnaryOperator grayscale() {
+        return argb -> {
+            int gray = toChannel(0.21 * channel(red(argb)) + 0.71 * channel(green(argb)) + 0.07 * channel(blue(argb)));
+            return pack(alpha(argb), gray, gray, gray);
+        };
+    }
+
+    /** Same as {@code Color::invert}. */
+    public static IntUnaryOperator invert() {
+        return argb -> argb ^ 0x00ffffff;
+    }
+
+    // a Color stores its components as floats
+    private static double channel(int value) {
+        return (float) (value / 255.0);
+    }
+
+    private static int toChannel(double value) {
+        return clamp((double) (float) value * 255);
+    }
+
+    // the hue in [0, 1), as in the JavaFX RGB to HSB conversion
+    private static double hue(double r, double g, double b, double max, double min) {
+        double redc = (max - r) / (max - min);
+        double greenc = (max - g) / (max - min);
+        double bluec = (max - b) / (max - min);
+        double hue;
+        if (r == max) {
+            hue = bluec - greenc;
+        } else if (g == max) {
+            hue = 2.0 + redc - bluec;
+        } else {
+            hue = 4.0 + greenc - redc;
+        }
+        hue /= 6.0;
+        return hue < 0 ? hue + 1.0 : hue;
+    }
+
+    private static int fromHsb(int alpha, double hue, double saturation, double brightness) {
+        if (saturation == 0) {
+            int gray = toChannel(brightness);
+            return pack(alpha, gray, gray, gray);
+        }
+        // Color.hsb takes degrees and deriveColor normalizes them twice
+        double degrees = ((((hue * 360) % 360) + 360) % 360 % 360 + 360) % 360;
+        double h = degrees / 360;
+        h = (h - Math.floor(h)) * 6.0;
+        double f = h - Math.floor(h);
+        double p = brightness * (1.0 - saturation);
+        double q = brightness * (1.0 - saturation * f);
+        double t = brightness * (1.0 - (saturation * (1.0 - f)));
+        switch ((int) h) {
+            case 0: return pack(alpha, toChannel(brightness), toChannel(t), toChannel(p));
+            case 1: return pack(alpha, toChannel(q), toChannel(brightness), toChannel(p));
+            case 2: return pack(alpha, toChannel(p), toChannel(brightness), toChannel(t));
+            case 3: return pack(alpha, toChannel(p), toChannel(q), toChannel(brightness));
+            case 4: return pack(alpha, toChannel(t), toChannel(p), toChannel(brightness));
+            default: return pack(alpha, toChannel(brightness), toChannel(p), toChannel(q));
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.java8_for_the_really_impatient.chap03_programming_with_lambdas;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * The lazy {@code info(Logger, Supplier<String>)} idiom, with the supplier evaluated
+ * and written on a background thread instead of the caller's.
+ *
+ * Suppliers go through a bounded multi-producer ring buffer; the writer thread drains
+ * it in batches and flushes the logger's handlers once per batch. When the buffer is
+ * full, events are either dropped or the caller waits, depending on the
+ * {@link OverflowPolicy}. A message supplier or handler that throws, even an
+ * {@link Error}, costs only its own event: nothing is logged for it, it is counted as
+ * failed rather than written, and the first such failure is reported through an
+ * {@link ErrorManager}, like a handler's own write errors. Should the writer thread
+ * still die, the logger closes itself, so {@code BLOCK} callers stop waiting.
+ */
+public class AsyncLogger implements AutoCloseable {
+
+    public enum OverflowPolicy { DROP, BLOCK }
+
+    private static final int BATCH_SIZE = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Logger logger;
+    private final OverflowPolicy policy;
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final Level[] levels;
+    private final Supplier<?>[] messages;
+    private final long[] millis;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    private volatile boolean closed;
+    // producers between their closed check and publishing; the writer waits them out
+    private final AtomicInteger offering = new AtomicInteger();
+    private final ErrorManager errors = new ErrorManager();
+    private final Thread writer;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public AsyncLogger(Logger logger, int capacity, OverflowPolicy policy) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        if (size == 0) size = 1;
+        this.logger = logger;
+        this.policy = policy;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.levels = new Level[size];
+        this.messages = new Supplier<?>[size];
+        this.millis = new long[size];
+        this.writer = new Thread(this::drainLoop, "async-logger-" + logger.getName());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public void info(Supplier<String> message) {
+        log(Level.INFO, message);
+    }
+
+    public void log(Level level, Supplier<String> message) {
+        if (!logger.isLoggable(level)) return;
+        long now = System.currentTimeMillis();
+        if (offer(level, message, now)) return;
+        if (policy == OverflowPolicy.BLOCK) {
+            for (int spins = 0; !closed; spins++) {
+                if (spins < 64) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                if (offer(level, message, now)) return;
+            }
+        }
+        dropped.increment();
+    }
+
+    public long getEnqueued() { return enqueued.sum(); }
+    public long getDropped() { return dropped.sum(); }
+    public long getWritten() { return written.sum(); }
+    public long getFailed() { return failed.sum(); }
+    public long getQueued() { return tail.get() - head; }
+
+    /**
+     * Writes everything already queued, then stops the writer thread. Events logged
+     * concurrently with {@code close} are either written or counted as dropped. Waits
+     * for the writer even if interrupted, and then restores the interrupt status.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        boolean interrupted = false;
+        while (true) {
+            try {
+                writer.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean offer(Level level, Supplier<String> message, long now) {
+        offering.incrementAndGet();
+        try {
+            return !closed && publish(level, message, now);
+        } finally {
+            offering.decrementAndGet();
+        }
+    }
+
+    private boolean publish(Level level, Supplier<String> message, long now) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    levels[index] = level;
+                    messages[index] = message;
+                    millis[index] = now;
+                    sequences.lazySet(index, position + 1);
+                    enqueued.increment();
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    private void drainLoop() {
+        try {
+            while (true) {
+                int count = drainBatch();
+                if (count > 0) {
+                    flush();
+                } else if (closed && offering.get() == 0 && tail.get() == head) {
+                    return;
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        } finally {
+            closed = true;
+        }
+    }
+
+    private int drainBatch() {
+        long position = head;
+        int count = 0;
+        while (count < BATCH_SIZE) {
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) break;
+            Level level = levels[index];
+            Supplier<?> message = messages[index];
+            long time = millis[index];
+            levels[index] = null;
+            messages[index] = null;
+            sequences.lazySet(index, position + mask + 1);
+            position++;
+            count++;
+            head = position;
+            write(level, message, time);
+        }
+        return count;
+    }
+
+    private void write(Level level, Supplier<?> message, long time) {
+        LogRecord record;
+        try {
+            record = new LogRecord(level, String.valueOf(message.get()));
+        } catch (Throwable e) {
+            failed.increment();
+            errors.error("Failed to build log message", asException(e), ErrorManager.FORMAT_FAILURE);
+            return;
+        }
+        setMillis(record, time);
+        record.setLoggerName(logger.getName());
+        record.setSourceClassName(null); // the caller is long gone; don't infer this thread's frames
+        try {
+            logger.log(record);
+            written.increment();
+        } catch (Throwable e) {
+            failed.increment();
+            errors.error("Failed to publish log record", asException(e), ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    // ErrorManager takes an Exception; an Error is reported wrapped
+    private static Exception asException(Throwable t) {
+        return t instanceof Exception ? (Exception) t : new RuntimeException(t);
+    }
+
+    // setMillis is deprecated from Java 9 on, in favor of setInstant, which Java 8 lacks
+    @SuppressWarnings("deprecation")
+    private static void setMillis(LogRecord record, long millis) {
+        record.setMillis(millis);
+    }
+
+    private void flush() {
+        for (Logger l = logger; l != null; l = l.getUseParentHandlers() ? l.getParent() : null) {
+            for (Handler handler : l.getHandlers()) {
+                try {
+                    handler.flush();
+                } catch (Throwable e) {
+                    errors.error("Failed to flush " + handler, asException(e), ErrorManager.FLUSH_FAILURE);
+                }
+            }
+        }
+    }
+}
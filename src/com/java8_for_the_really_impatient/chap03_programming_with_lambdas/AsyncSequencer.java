@@ -0,0 +1,239 @@
+package com.java8_for_the_really_impatient.chap03_programming_with_lambdas;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs {@code doInOrderAsync}-style sequences on a fixed pool and hands back
+ * {@link CompletableFuture}s.
+ *
+ * At most {@code maxInFlight} sequences run at a time; up to {@code maxWaiting} further
+ * ones wait in a queue and start, in submission order, as running ones complete. Beyond
+ * that a submission is rejected: the returned future fails with a
+ * {@link RejectedExecutionException}. Submitting never blocks, so a task on the
+ * sequencer's own pool can submit more work without deadlocking it.
+ *
+ * Cancelling a returned future drops its sequence if it has not started, and otherwise
+ * skips the steps of it that have not run yet; a step already running finishes, and
+ * keeps its sequence's slot in {@code maxInFlight} until it does.
+ */
+public class AsyncSequencer implements AutoCloseable {
+
+    private static final AsyncSequencer SHARED = new AsyncSequencer(
+            Runtime.getRuntime().availableProcessors(), 1024, 1 << 16);
+
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private final Semaphore queueSlots;
+    private final ConcurrentLinkedQueue<Pending<?>> waiting = new ConcurrentLinkedQueue<>();
+
+    public AsyncSequencer(int threads, int maxInFlight, int maxWaiting) {
+        this(Executors.newFixedThreadPool(threads, daemonThreads()), maxInFlight, maxWaiting);
+    }
+
+    public AsyncSequencer(ExecutorService executor, int maxInFlight, int maxWaiting) {
+        if (maxInFlight < 1 || maxWaiting < 0) {
+            throw new IllegalArgumentException("maxInFlight " + maxInFlight + ", maxWaiting " + maxWaiting);
+        }
+        this.executor = executor;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.queueSlots = new Semaphore(maxWaiting);
+    }
+
+    public static AsyncSequencer shared() {
+        return SHARED;
+    }
+
+    public int availablePermits() {
+        return inFlight.availablePermits();
+    }
+
+    /** The number of submitted sequences still waiting for a permit. */
+    public int waiting() {
+        return waiting.size();
+    }
+
+    public CompletableFuture<Void> doInOrderAsync(Runnable first, Runnable second) {
+        return submit(p -> CompletableFuture.runAsync(() -> {
+            p.ensureNotCancelled();
+            first.run();
+        }, executor).thenRunAsync(() -> {
+            p.ensureNotCancelled();
+            second.run();
+        }, executor));
+    }
+
+    /**
+     * Completes with the value produced by {@code first} once {@code second} has
+     * consumed it.
+     */
+    public <T> CompletableFuture<T> doInOrderAsync(Supplier<? extends T> first, Consumer<? super T> second) {
+        return submit(p -> CompletableFuture.<T>supplyAsync(() -> {
+                    p.ensureNotCancelled();
+                    return first.get();
+                }, executor)
+                .thenApplyAsync(t -> {
+                    p.ensureNotCancelled();
+                    second.accept(t);
+                    return t;
+                }, executor));
+    }
+
+    public <T> CompletableFuture<T> supplyAsync(Supplier<? extends T> supplier) {
+        return submit(p -> CompletableFuture.<T>supplyAsync(() -> {
+            p.ensureNotCancelled();
+            return supplier.get();
+        }, executor));
+    }
+
+    /**
+     * Feeds the value produced by {@code first} to every branch in parallel and
+     * collects the results in branch order.
+     */
+    public <T, R> CompletableFuture<List<R>> fanOut(Supplier<? extends T> first,
+                                                    List<? extends Function<? super T, ? extends R>> branches) {
+        return submit(p -> CompletableFuture.<T>supplyAsync(() -> {
+                    p.ensureNotCancelled();
+                    return first.get();
+                }, executor)
+                .thenCompose(t -> {
+                    List<CompletableFuture<R>> results = new ArrayList<>(branches.size());
+                    for (Function<? super T, ? extends R> branch : branches) {
+                        results.add(CompletableFuture.supplyAsync(() -> {
+                            p.ensureNotCancelled();
+                            return branch.apply(t);
+                        }, executor));
+                    }
+                    return allOf(results);
+                }));
+    }
+
+    /**
+     * Feeds the value produced by {@code first} to every consumer in parallel and
+     * completes with that value once all of them have run.
+     */
+    public <T> CompletableFuture<T> broadcast(Supplier<? extends T> first, List<? extends Consumer<? super T>> consumers) {
+        return submit(p -> CompletableFuture.<T>supplyAsync(() -> {
+                    p.ensureNotCancelled();
+                    return first.get();
+                }, executor)
+                .thenCompose(t -> {
+                    List<CompletableFuture<Void>> results = new ArrayList<>(consumers.size());
+                    for (Consumer<? super T> consumer : consumers) {
+                        results.add(CompletableFuture.runAsync(() -> {
+                            p.ensureNotCancelled();
+                            consumer.accept(t);
+                        }, executor));
+                    }
+                    return allOf(results).thenApply(v -> t);
+                }));
+    }
+
+    public static <T> CompletableFuture<List<T>> allOf(List<CompletableFuture<T>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> {
+                    List<T> results = new ArrayList<>(futures.size());
+                    for (CompletableFuture<T> future : futures) {
+                        results.add(future.join());
+                    }
+                    return results;
+                });
+    }
+
+    public static Throwable unwrap(Throwable t) {
+        return t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> submit(Function<Pending<T>, CompletableFuture<T>> sequence) {
+        Pending<T> pending = new Pending<>(sequence);
+        if (!queueSlots.tryAcquire()) {
+            pending.result.completeExceptionally(new RejectedExecutionException(
+                    "AsyncSequencer full: " + waiting() + " sequences waiting"));
+            return pending.result;
+        }
+        waiting.add(pending);
+        pending.result.whenComplete((t, e) -> {
+            if (pending.result.isCancelled() && waiting.remove(pending)) queueSlots.release();
+        });
+        startWaiting();
+        return pending.result;
+    }
+
+    // called after every enqueue and every release, so no waiting sequence is stranded
+    private void startWaiting() {
+        while (!waiting.isEmpty() && inFlight.tryAcquire()) {
+            Pending<?> pending = waiting.poll();
+            if (pending != null) queueSlots.release();
+            if (pending == null || !pending.start()) {
+                inFlight.release();
+            }
+        }
+    }
+
+    private class Pending<T> {
+        final Function<Pending<T>, CompletableFuture<T>> sequence;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Pending(Function<Pending<T>, CompletableFuture<T>> sequence) {
+            this.sequence = sequence;
+        }
+
+        /** Called at the start of every step, so a cancelled sequence skips the rest. */
+        void ensureNotCancelled() {
+            if (result.isCancelled()) throw new CancellationException();
+        }
+
+        /**
+         * Starts the sequence with a permit held; false if there was nothing to start.
+         * The permit goes back when the sequence's last step has finished, not when
+         * {@code result} is cancelled.
+         */
+        boolean start() {
+            if (result.isDone()) return false;
+            CompletableFuture<T> running;
+            try {
+                running = sequence.apply(this);
+            } catch (RuntimeException | Error e) {
+                result.completeExceptionally(e);
+                return false;
+            }
+            running.whenComplete((t, e) -> {
+                inFlight.release();
+                if (e == null) {
+                    result.complete(t);
+                } else {
+                    result.completeExceptionally(unwrap(e));
+                }
+                startWaiting();
+            });
+            return true;
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, "async-sequencer-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
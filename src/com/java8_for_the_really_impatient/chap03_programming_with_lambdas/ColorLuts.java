@@ -0,0 +1,164 @@
+package com.java8_for_the_really_impatient.chap03_programming_with_lambdas;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Compiles packed color operators (see {@link Argb}) into lookup tables, so a long
+ * composed chain costs one table lookup per pixel.
+ *
+ * Operators are treated as black boxes: whether a table reproduces an operator is
+ * decided by comparing the two on every RGB color at full opacity, plus a fixed sample
+ * of colors with other alpha values, so that bound holds exactly for opaque images.
+ * The check costs a few seconds per compile for long chains.
+ */
+public final class ColorLuts {
+
+    public static final int DEFAULT_CUBE_STEP = 5;
+
+    private static final int SAMPLES = 4096;
+    private static final long SAMPLE_SEED = 42L;
+
+    private ColorLuts() {}
+
+    /**
+     * One 256-entry table per channel, for operators where every output channel depends
+     * only on the same input channel.
+     */
+    public static final class ChannelLut implements IntUnaryOperator {
+        private final int[] alpha = new int[256];
+        private final int[] red = new int[256];
+        private final int[] green = new int[256];
+        private final int[] blue = new int[256];
+
+        private ChannelLut(IntUnaryOperator op) {
+            for (int v = 0; v < 256; v++) {
+                alpha[v] = Argb.alpha(op.applyAsInt(Argb.pack(v, 0, 0, 0))) << 24;
+                int rgb = op.applyAsInt(Argb.pack(255, v, v, v));
+                red[v] = Argb.red(rgb) << 16;
+                green[v] = Argb.green(rgb) << 8;
+                blue[v] = Argb.blue(rgb);
+            }
+        }
+
+        @Override
+        public int applyAsInt(int argb) {
+            return alpha[argb >>> 24] | red[(argb >> 16) & 0xff] | green[(argb >> 8) & 0xff] | blue[argb & 0xff];
+        }
+    }
+
+    /**
+     * A 3D table sampled every {@code step} levels per channel and interpolated
+     * trilinearly in between; alpha is passed through. A step of 1 is an exact
+     * 2^24-entry table (64 MB).
+     */
+    public static final class ColorCube implements IntUnaryOperator {
+        private final int step;
+        private final int size;
+        private final int[] table;
+
+        private ColorCube(IntUnaryOperator op, int step) {
+            if (step < 1 || 255 % step != 0) {
+                throw new IllegalArgumentException("step must divide 255: " + step);
+            }
+            this.step = step;
+            this.size = 255 / step + 1;
+            this.table = new int[size * size * size];
+            for (int r = 0, i = 0; r < size; r++) {
+                for (int g = 0; g < size; g++) {
+                    for (int b = 0; b < size; b++, i++) {
+                        table[i] = op.applyAsInt(Argb.pack(255, r * step, g * step, b * step));
+                    }
+                }
+            }
+        }
+
+        @Override
+        public int applyAsInt(int argb) {
+            int r = Argb.red(argb), g = Argb.green(argb), b = Argb.blue(argb);
+            int r0 = r / step, g0 = g / step, b0 = b / step;
+            int fr = r - r0 * step, fg = g - g0 * step, fb = b - b0 * step;
+            int i000 = (r0 * size + g0) * size + b0;
+            if ((fr | fg | fb) == 0) {
+                return (argb & 0xff000000) | (table[i000] & 0x00ffffff);
+            }
+            int dr = fr == 0 ? 0 : size * size;
+            int dg = fg == 0 ? 0 : size;
+            int db = fb == 0 ? 0 : 1;
+            int c000 = table[i000], c001 = table[i000 + db];
+            int c010 = table[i000 + dg], c011 = table[i000 + dg + db];
+            int c100 = table[i000 + dr], c101 = table[i000 + dr + db];
+            int c110 = table[i000 + dr + dg], c111 = table[i000 + dr + dg + db];
+            int result = argb & 0xff000000;
+            for (int shift = 16; shift >= 0; shift -= 8) {
+                int c00 = lerp(c000 >> shift & 0xff, c001 >> shift & 0xff, fb);
+                int c01 = lerp(c010 >> shift & 0xff, c011 >> shift & 0xff, fb);
+                int c10 = lerp(c100 >> shift & 0xff, c101 >> shift & 0xff, fb);
+                int c11 = lerp(c110 >> shift & 0xff, c111 >> shift & 0xff, fb);
+                result |= lerp(lerp(c00, c01, fg), lerp(c10, c11, fg), fr) << shift;
+            }
+            return result;
+        }
+
+        private int lerp(int a, int b, int f) {
+            return (a * (step - f) + b * f + step / 2) / step;
+        }
+    }
+
+    public static ChannelLut channels(IntUnaryOperator op) {
+        return new ChannelLut(op);
+    }
+
+    public static ColorCube cube(IntUnaryOperator op, int step) {
+        return new ColorCube(op, step);
+    }
+
+    /**
+     * Same as {@code compile(op, 0)}.
+     */
+    public static Optional<IntUnaryOperator> compile(IntUnaryOperator op) {
+        return compile(op, 0);
+    }
+
+    /**
+     * Returns a {@link ChannelLut} if it reproduces {@code op} exactly, otherwise a
+     * {@link ColorCube} if its per-channel error stays within {@code maxError} and
+     * {@code op} preserves alpha, otherwise nothing, in which case {@code op} has to be
+     * applied as it is. Operators with a jump, such as {@code Argb.brighter()} lifting
+     * black, are off by much more than their typical error near the jump, so they
+     * rarely compile to a cube.
+     */
+    public static Optional<IntUnaryOperator> compile(IntUnaryOperator op, int maxError) {
+        ChannelLut channels = channels(op);
+        if (!exceeds(op, channels, 0)) {
+            return Optional.of(channels);
+        }
+        if (maxError > 0) {
+            ColorCube cube = cube(op, DEFAULT_CUBE_STEP);
+            if (!exceeds(op, cube, maxError)) {
+                return Optional.of(cube);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static boolean exceeds(IntUnaryOperator expected, IntUnaryOperator actual, int maxError) {
+        SplittableRandom random = new SplittableRandom(SAMPLE_SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            if (exceeds(expected, actual, random.nextInt(), maxError)) return true;
+        }
+        return IntStream.range(0, 1 << 24).parallel()
+                .anyMatch(rgb -> exceeds(expected, actual, 0xff000000 | rgb, maxError));
+    }
+
+    private static boolean exceeds(IntUnaryOperator expected, IntUnaryOperator actual, int argb, int maxError) {
+        int e = expected.applyAsInt(argb);
+        int a = actual.applyAsInt(argb);
+        return Argb.alpha(e) != Argb.alpha(a)
+                || Math.abs(Argb.red(e) - Argb.red(a)) > maxError
+                || Math.abs(Argb.green(e) - Argb.green(a)) > maxError
+                || Math.abs(Argb.blue(e) - Argb.blue(a)) > maxError;
+    }
+}
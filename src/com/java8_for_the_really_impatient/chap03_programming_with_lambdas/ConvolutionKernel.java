@@ -0,0 +1,87 @@
+package com.java8_for_the_really_impatient.chap03_programming_with_lambdas;
+
+import java.util.Arrays;
+
+/**
+ * A square convolution stencil for {@link PackedLatentImage#convolve}.
+ *
+ * The red, green and blue channels are convolved; alpha is taken from the center pixel.
+ * Pixels outside the image repeat the nearest edge pixel.
+ */
+public final class ConvolutionKernel {
+    private final int radius;
+    private final float[] weights;
+
+    private ConvolutionKernel(int radius, float[] weights) {
+        this.radius = radius;
+        this.weights = weights;
+    }
+
+    public static ConvolutionKernel of(int radius, float... weights) {
+        int side = 2 * radius + 1;
+        if (radius < 0 || weights.length != side * side) {
+            throw new IllegalArgumentException("A kernel of radius " + radius + " needs " + side * side + " weights");
+        }
+        return new ConvolutionKernel(radius, weights.clone());
+    }
+
+    public static ConvolutionKernel boxBlur(int radius) {
+        int side = 2 * radius + 1;
+        float[] weights = new float[side * side];
+        Arrays.fill(weights, 1f / weights.length);
+        return of(radius, weights);
+    }
+
+    public static ConvolutionKernel gaussianBlur() {
+        return of(1,
+                1/16f, 2/16f, 1/16f,
+                2/16f, 4/16f, 2/16f,
+                1/16f, 2/16f, 1/16f);
+    }
+
+    public static ConvolutionKernel sharpen() {
+        return of(1,
+                0, -1, 0,
+                -1, 5, -1,
+                0, -1, 0);
+    }
+
+    public static ConvolutionKernel edgeDetect() {
+        return of(1,
+                -1, -1, -1,
+                -1, 8, -1,
+                -1, -1, -1);
+    }
+
+    public int getRadius() { return radius; }
+
+    /**
+     * Convolves {@code src} into {@code dst}, both laid out with the given stride and
+     * origin. Only pixels inside {@code [minX, maxX) x [minY, maxY)} of {@code src} are
+     * read; taps falling outside are clamped to that region.
+     */
+    void convolve(int[] src, int[] dst, int stride, int originX, int originY,
+                  int minX, int maxX, int minY, int maxY,
+                  int fromX, int toX, int fromY, int toY) {
+        for (int y = fromY; y < toY; y++) {
+            for (int x = fromX; x < toX; x++) {
+                float r = 0, g = 0, b = 0;
+                int w = 0;
+                for (int dy = -radius; dy <= radius; dy++) {
+                    int sy = Math.min(Math.max(y + dy, minY), maxY - 1) - originY;
+                    int row = sy * stride - originX;
+                    for (int dx = -radius; dx <= radius; dx++, w++) {
+                        int sx = Math.min(Math.max(x + dx, minX), maxX - 1);
+                        int argb = src[row + sx];
+                        float weight = weights[w];
+                        r += weight * Argb.red(argb);
+                        g += weight * Argb.green(argb);
+                        b += weight * Argb.blue(argb);
+                    }
+                }
+                int center = (y - originY) * stride + (x - originX);
+                dst[center] = Argb.pack(Argb.alpha(src[center]), Argb.clamp(r), Argb.clamp(g), Argb.clamp(b));
+            }
+        }
+    }
+}
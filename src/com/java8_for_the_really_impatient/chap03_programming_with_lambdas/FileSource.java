@@ -0,0 +1,178 @@
+package com.java8_for_the_really_impatient.chap03_programming_with_lambdas;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static com.java8_for_the_really_impatient.chap03_programming_with_lambdas.ProgrammingWithLambdas.unchecked;
+
+/**
+ * A text file read through memory-mapped windows instead of
+ * {@code new String(Files.readAllBytes(path), charset)}.
+ *
+ * Lines end at {@code \n}, {@code \r} or {@code \r\n}, as in {@code Files.lines}.
+ * Windows end after one of those, never between the two bytes of a {@code \r\n}, so
+ * each one decodes on its own and a line never spans two of them; a line longer than the window size widens that window, up to
+ * 2 GB. Only one decoded window has to be reachable at a time. I/O errors while
+ * reading are rethrown as in {@link ProgrammingWithLambdas#unchecked}.
+ */
+public class FileSource implements AutoCloseable {
+
+    public static final int DEFAULT_CHUNK_BYTES = 8 << 20;
+
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private final FileChannel channel;
+    private final Charset charset;
+    private final int chunkBytes;
+
+    private FileSource(FileChannel channel, Charset charset, int chunkBytes) {
+        this.channel = channel;
+        this.charset = charset;
+        this.chunkBytes = chunkBytes;
+    }
+
+    public static FileSource open(Path path) throws IOException {
+        return open(path, StandardCharsets.UTF_8, DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * @param charset must encode line feed and carriage return as the single bytes
+     *                {@code 0x0A} and {@code 0x0D} and never use those bytes inside
+     *                another character, as UTF-8, ASCII and the ISO-8859 family do
+     */
+    public static FileSource open(Path path, Charset charset, int chunkBytes) throws IOException {
+        if (!Arrays.equals("\n".getBytes(charset), new byte[] { LINE_FEED })
+                || !Arrays.equals("\r".getBytes(charset), new byte[] { CARRIAGE_RETURN })) {
+            throw new IllegalArgumentException("Unsupported charset: " + charset);
+        }
+        if (chunkBytes < 1) {
+            throw new IllegalArgumentException("chunkBytes must be positive: " + chunkBytes);
+        }
+        return new FileSource(FileChannel.open(path, StandardOpenOption.READ), charset, chunkBytes);
+    }
+
+    /**
+     * The decoded windows, in file order. Closing the stream closes this source.
+     */
+    public Stream<CharBuffer> chunks() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new ChunkIterator(),
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(unchecked(() -> { close(); return null; })::get);
+    }
+
+    /**
+     * The lines, without their terminators, as views into the decoded windows; call
+     * {@code toString()} on the ones you keep. Closing the stream closes this source.
+     */
+    public Stream<CharSequence> lines() {
+        return chunks().flatMap(FileSource::lines);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static Stream<CharSequence> lines(CharBuffer chunk) {
+        Stream.Builder<CharSequence> lines = Stream.builder();
+        int length = chunk.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = chunk.charAt(i);
+            if (c == '\n' || c == '\r') {
+                lines.add(chunk.subSequence(start, i));
+                if (c == '\r' && i + 1 < length && chunk.charAt(i + 1) == '\n') i++;
+                start = i + 1;
+            }
+        }
+        if (start < length) {
+            lines.add(chunk.subSequence(start, length));
+        }
+        return lines.build();
+    }
+
+    private class ChunkIterator implements Iterator<CharBuffer> {
+        private final long size = unchecked(channel::size).get();
+        private final CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private long position;
+
+        @Override
+        public boolean hasNext() {
+            return position < size;
+        }
+
+        @Override
+        public CharBuffer next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            long end = Math.min(size, position + chunkBytes);
+            // one byte past end, to tell a final \r from the first half of a \r\n
+            MappedByteBuffer window = map(position, Math.min(size, end + 1));
+            if (end < size) {
+                int lastLineEnd = (int) (end - position) - 1;
+                while (lastLineEnd >= 0 && !endsLine(window, lastLineEnd)) {
+                    lastLineEnd--;
+                }
+                if (lastLineEnd >= 0) {
+                    window.limit(lastLineEnd + 1);
+                    end = position + lastLineEnd + 1;
+                } else {
+                    end = endOfLine(end);
+                    window = map(position, end);
+                }
+            }
+            position = end;
+            ByteBuffer bytes = window;
+            return unchecked(() -> decode(bytes)).get();
+        }
+
+        private CharBuffer decode(ByteBuffer bytes) throws CharacterCodingException {
+            decoder.reset();
+            return decoder.decode(bytes);
+        }
+
+        // the position after the first line terminator at or after from
+        private long endOfLine(long from) {
+            for (long start = from; start < size; start += chunkBytes) {
+                long stop = Math.min(size, start + chunkBytes);
+                MappedByteBuffer window = map(start, Math.min(size, stop + 1));
+                for (int i = 0; i < stop - start; i++) {
+                    if (endsLine(window, i)) {
+                        return start + i + 1;
+                    }
+                }
+            }
+            return size;
+        }
+
+        // whether a line ends with the byte at i: a \n, or a \r that no \n follows
+        private boolean endsLine(ByteBuffer window, int i) {
+            byte b = window.get(i);
+            return b == LINE_FEED
+                    || b == CARRIAGE_RETURN && (i + 1 >= window.limit() || window.get(i + 1) != LINE_FEED);
+        }
+
+        private MappedByteBuffer map(long from, long to) {
+            return unchecked(() -> channel.map(FileChannel.MapMode.READ_ONLY, from, to - from)).get();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.java8_for_the_really_impatient.chap03_programming_with_lambdas;
+
+/**
+ * A {@link Raster} backed by an on-heap {@code int[]} in row-major order.
+ */
+public class IntArrayRaster implements Raster {
+    private final int[] pixels;
+    private final int width;
+    private final int height;
+
+    public IntArrayRaster(int width, int height) {
+        this(new int[width * height], width, height);
+    }
+
+    public IntArrayRaster(int[] pixels, int width, int height) {
+        if (pixels.length != width * height) {
+            throw new IllegalArgumentException("Expected " + width * height + " pixels, got " + pixels.length);
+        }
+        this.pixels = pixels;
+        this.width = width;
+        this.height = height;
+    }
+
+    public int[] getPixels() { return pixels; }
+
+    @Override
+    public int getWidth() { return width; }
+
+    @Override
+    public int getHeight() { return height; }
+
+    @Override
+    public void getPixels(int x, int y, int width, int height, int[] buffer, int offset, int scanlineStride) {
+        for (int row = 0; row < height; row++) {
+            System.arraycopy(pixels, (y + row) * this.width + x, buffer, offset + row * scanlineStride, width);
+        }
+    }
+
+    @Override
+    public void setPixels(int x, int y, int width, int height, int[] buffer, int offset, int scanlineStride) {
+        for (int row = 0; row < height; row++) {
+            System.arraycopy(buffer, offset + row * scanlineStride, pixels, (y + row) * this.width + x, width);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.java8_for_the_really_impatient.chap03_programming_with_lambdas;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link Raster} stored in a memory-mapped file, so images larger than the heap can
+ * be processed tile by tile.
+ *
+ * The file holds a 16-byte header (magic, version, width, height) followed by the
+ * pixels as big-endian ARGB ints in row-major order. A single mapping cannot exceed
+ * 2 GB, so the pixels are mapped in bands of whole rows.
+ */
+public class MappedRaster implements Raster, Closeable {
+
+    private static final int MAGIC = 0x41524742; // "ARGB"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final long MAX_BAND_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+    private final int rowsPerBand;
+    private final MappedByteBuffer[] bands;
+    private final IntBuffer[] pixelBands;
+
+    private MappedRaster(FileChannel channel, int width, int height, boolean writable) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid raster size " + width + "x" + height);
+        }
+        this.channel = channel;
+        this.width = width;
+        this.height = height;
+        this.rowsPerBand = (int) Math.max(1, Math.min(height, MAX_BAND_BYTES / (4L * width)));
+        int bandCount = (height + rowsPerBand - 1) / rowsPerBand;
+        bands = new MappedByteBuffer[bandCount];
+        pixelBands = new IntBuffer[bandCount];
+        FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        for (int i = 0; i < bandCount; i++) {
+            int rows = Math.min(rowsPerBand, height - i * rowsPerBand);
+            long position = HEADER_BYTES + 4L * width * rowsPerBand * i;
+            bands[i] = channel.map(mode, position, 4L * width * rows);
+            pixelBands[i] = bands[i].asIntBuffer();
+        }
+    }
+
+    public static MappedRaster create(Path path, int width, int height) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height);
+            return new MappedRaster(channel, width, height, true);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static MappedRaster open(Path path, boolean writable) throws IOException {
+        FileChannel channel = writable
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a raster file: " + path);
+            }
+            int width = header.getInt();
+            int height = header.getInt();
+            if (channel.size() < HEADER_BYTES + 4L * width * height) {
+                throw new IOException("Truncated raster file: " + path);
+            }
+            return new MappedRaster(channel, width, height, writable);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes {@code image} into a new raster file, a band of rows at a time.
+     */
+    public static MappedRaster copyOf(BufferedImage image, Path path) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        MappedRaster raster = create(path, width, height);
+        try {
+            int rows = Math.max(1, TiledTransformEngine.DEFAULT_TILE_PIXELS / width);
+            int[] buffer = new int[rows * width];
+            for (int y = 0; y < height; y += rows) {
+                int h = Math.min(rows, height - y);
+                image.getRGB(0, y, width, h, buffer, 0, width);
+                raster.setPixels(0, y, width, h, buffer, 0, width);
+            }
+            return raster;
+        } catch (RuntimeException e) {
+            raster.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int getWidth() { return width; }
+
+    @Override
+    public int getHeight() { return height; }
+
+    @Override
+    public void getPixels(int x, int y, int width, int height, int[] buffer, int offset, int scanlineStride) {
+        for (int row = 0; row < height; row++) {
+            rowBuffer(x, y + row, width).get(buffer, offset + row * scanlineStride, width);
+        }
+    }
+
+    @Override
+    public void setPixels(int x, int y, int width, int height, int[] buffer, int offset, int scanlineStride) {
+        for (int row = 0; row < height; row++) {
+            rowBuffer(x, y + row, width).put(buffer, offset + row * scanlineStride, width);
+        }
+    }
+
+    public void force() {
+        for (MappedByteBuffer band : bands) {
+            band.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // duplicated so that concurrent tiles do not share a position
+    private IntBuffer rowBuffer(int x, int y, int length) {
+        if (x < 0 || length < 0 || length > width - x || y < 0 || y >= height) {
+            throw new IndexOutOfBoundsException("(" + x + ", " + y + ") + " + length
+                    + " pixels is outside " + width + "x" + height);
+        }
+        IntBuffer band = pixelBands[y / rowsPerBand].duplicate();
+        band.position((y % rowsPerBand) * width + x);
+        return band;
+    }
+}
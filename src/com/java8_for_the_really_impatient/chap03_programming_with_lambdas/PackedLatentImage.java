@@ -0,0 +1,147 @@
+package com.java8_for_the_really_impatient.chap03_programming_with_lambdas;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A {@link ProgrammingWithLambdas.LatentImage} over packed ARGB pixels.
+ *
+ * Consecutive point-wise and position-aware operations are fused into one per-pixel
+ * function. Convolutions split the pipeline into segments, which are evaluated tile by
+ * tile: each tile reads its input plus a halo wide enough for all queued stencils, so
+ * chained stages never materialize a full intermediate image.
+ */
+public class PackedLatentImage {
+
+    @FunctionalInterface
+    public interface PixelTransformer {
+        int apply(int x, int y, int argb);
+
+        default PixelTransformer andThen(PixelTransformer next) {
+            return (x, y, argb) -> next.apply(x, y, apply(x, y, argb));
+        }
+    }
+
+    private static final class Segment {
+        final PixelTransformer point;
+        final ConvolutionKernel kernel;
+
+        Segment(PixelTransformer point, ConvolutionKernel kernel) {
+            this.point = point;
+            this.kernel = kernel;
+        }
+    }
+
+    private final Raster in;
+    private final int width;
+    private final int height;
+    private final List<Segment> pendingOperations = new ArrayList<>();
+    private int halo;
+
+    private PackedLatentImage(Raster in) {
+        this.in = in;
+        this.width = in.getWidth();
+        this.height = in.getHeight();
+    }
+
+    public static PackedLatentImage from(int[] argb, int width, int height) {
+        return new PackedLatentImage(new IntArrayRaster(argb, width, height));
+    }
+
+    public static PackedLatentImage from(Raster raster) {
+        return new PackedLatentImage(raster);
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    public PackedLatentImage transform(IntUnaryOperator f) {
+        return transform((x, y, argb) -> f.applyAsInt(argb));
+    }
+
+    public PackedLatentImage transform(PixelTransformer f) {
+        int last = pendingOperations.size() - 1;
+        if (last >= 0 && pendingOperations.get(last).kernel == null) {
+            pendingOperations.set(last, new Segment(pendingOperations.get(last).point.andThen(f), null));
+        } else {
+            pendingOperations.add(new Segment(f, null));
+        }
+        return this;
+    }
+
+    public PackedLatentImage convolve(ConvolutionKernel kernel) {
+        pendingOperations.add(new Segment(null, kernel));
+        halo += kernel.getRadius();
+        return this;
+    }
+
+    public int[] toArgb() {
+        int[] out = new int[width * height];
+        toArgb(out);
+        return out;
+    }
+
+    public void toArgb(int[] out) {
+        renderTo(new IntArrayRaster(out, width, height), TiledTransformEngine.shared()).join();
+    }
+
+    public CompletableFuture<int[]> toArgbAsync(int[] out, TiledTransformEngine engine) {
+        return renderTo(new IntArrayRaster(out, width, height), engine).thenApply(IntArrayRaster::getPixels);
+    }
+
+    public <R extends Raster> CompletableFuture<R> renderTo(R out, TiledTransformEngine engine) {
+        if (out.getWidth() != width || out.getHeight() != height) {
+            throw new IllegalArgumentException("Expected a " + width + "x" + height + " raster, got "
+                    + out.getWidth() + "x" + out.getHeight());
+        }
+        List<Segment> segments = new ArrayList<>(pendingOperations);
+        int segmentsHalo = halo;
+        return engine.forEachTile(width, height, (fromX, toX, fromY, toY) ->
+                renderTile(segments, segmentsHalo, out, fromX, toX, fromY, toY))
+                .thenApply(v -> out);
+    }
+
+    private void renderTile(List<Segment> segments, int halo, Raster out, int fromX, int toX, int fromY, int toY) {
+        int originX = Math.max(0, fromX - halo);
+        int originY = Math.max(0, fromY - halo);
+        int stride = Math.min(width, toX + halo) - originX;
+        int rows = Math.min(height, toY + halo) - originY;
+        int[] current = new int[stride * rows];
+        int[] next = halo == 0 ? null : new int[stride * rows];
+        in.getPixels(originX, originY, stride, rows, current, 0, stride);
+
+        // [minX, maxX) x [minY, maxY) holds the pixels that are exact after the stages so far
+        int minX = originX, maxX = originX + stride;
+        int minY = originY, maxY = originY + rows;
+        for (Segment segment : segments) {
+            if (segment.kernel == null) {
+                for (int y = minY; y < maxY; y++) {
+                    int row = (y - originY) * stride - originX;
+                    for (int x = minX; x < maxX; x++) {
+                        current[row + x] = segment.point.apply(x, y, current[row + x]);
+                    }
+                }
+            } else {
+                int r = segment.kernel.getRadius();
+                int nextMinX = minX == 0 ? 0 : minX + r;
+                int nextMaxX = maxX == width ? width : maxX - r;
+                int nextMinY = minY == 0 ? 0 : minY + r;
+                int nextMaxY = maxY == height ? height : maxY - r;
+                segment.kernel.convolve(current, next, stride, originX, originY,
+                        minX, maxX, minY, maxY, nextMinX, nextMaxX, nextMinY, nextMaxY);
+                int[] swap = current;
+                current = next;
+                next = swap;
+                minX = nextMinX;
+                maxX = nextMaxX;
+                minY = nextMinY;
+                maxY = nextMaxY;
+            }
+        }
+
+        out.setPixels(fromX, fromY, toX - fromX, toY - fromY,
+                current, (fromY - originY) * stride + (fromX - originX), stride);
+    }
+}
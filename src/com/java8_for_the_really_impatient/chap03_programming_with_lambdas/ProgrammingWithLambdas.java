@@ -1,17 +1,22 @@
 package com.java8_for_the_really_impatient.chap03_programming_with_lambdas;
 
 import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.PixelWriter;
 import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
 
+import javax.imageio.ImageIO;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -67,9 +72,22 @@ public class ProgrammingWithLambdas {
         return t -> op2.apply(op1.apply(t));
     }
 
+    /**
+     * Adapts a {@code Color} operator to packed ARGB pixels. Each call allocates, so this
+     * is meant to feed {@link ColorLuts#compile}, which evaluates it only while building
+     * its tables.
+     */
+    public static IntUnaryOperator packed(UnaryOperator<Color> f) {
+        return argb -> {
+            Color c = f.apply(Color.rgb(Argb.red(argb), Argb.green(argb), Argb.blue(argb), Argb.alpha(argb) / 255.0));
+            return Argb.pack(Argb.clamp(c.getOpacity() * 255), Argb.clamp(c.getRed() * 255),
+                    Argb.clamp(c.getGreen() * 255), Argb.clamp(c.getBlue() * 255));
+        };
+    }
+
     public static class LatentImage {
         private Image in;
-        private List<UnaryOperator<Color>> pendingOperations;
+        private List<ColorTransformer> pendingOperations = new ArrayList<>();
 
         public LatentImage from(Image image) {
             in = image;
@@ -77,6 +95,11 @@ public class ProgrammingWithLambdas {
         }
 
         public LatentImage transform(UnaryOperator<Color> f) {
+            pendingOperations.add((x, y, c) -> f.apply(c));
+            return this;
+        }
+
+        public LatentImage transform(ColorTransformer f) {
             pendingOperations.add(f);
             return this;
         }
@@ -85,49 +108,43 @@ public class ProgrammingWithLambdas {
             int width = (int) in.getWidth();
             int height = (int) in.getHeight();
             WritableImage out = new WritableImage(width, height);
-            for (int x = 0; x < width; x++) {
-                for (int y = 0; y < height; y++) {
-                    Color c = in.getPixelReader().getColor(x, y);
-                    for (UnaryOperator<Color> f : pendingOperations) {
-                        c = f.apply(c);
+            PixelReader reader = in.getPixelReader();
+            PixelWriter writer = out.getPixelWriter();
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    Color c = reader.getColor(x, y);
+                    for (ColorTransformer f : pendingOperations) {
+                        c = f.apply(x, y, c);
                     }
-                    out.getPixelWriter().setColor(x, y, c);
+                    writer.setColor(x, y, c);
                 }
             }
             return out;
         }
     }
 
-    public static Color[][] parallelTransform(Color[][] in, UnaryOperator<Color> f) {
-        int n = Runtime.getRuntime().availableProcessors();
-        int height = in.length;
-        int width = in[0].length;
-        Color[][] out = new Color[height][width];
-
-        try {
-            ExecutorService pool = Executors.newCachedThreadPool();
-
-            for (int i = 0; i < n; i++) {
-                int fromY = i * height / n;
-                int toY = (i+1) * height / n;
-
-                pool.submit(() -> {
-                    for (int x = 0; x < width; x++) {
-                        for (int y = fromY; y < toY; y++) {
-                            out[y][x] = f.apply(in[y][x]);
-                        }
-                    }
-                });
-            }
+    public static int[] toArgb(Image in) {
+        int width = (int) in.getWidth();
+        int height = (int) in.getHeight();
+        int[] argb = new int[width * height];
+        in.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), argb, 0, width);
+        return argb;
+    }
 
-            pool.shutdown();
-            pool.awaitTermination(1, TimeUnit.HOURS);
+    public static Image toImage(int[] argb, int width, int height) {
+        WritableImage out = new WritableImage(width, height);
+        out.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), argb, 0, width);
+        return out;
+    }
 
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+    public static Color[][] parallelTransform(Color[][] in, UnaryOperator<Color> f) {
+        return parallelTransformAsync(in, f).join();
+    }
 
-        return out;
+    public static CompletableFuture<Color[][]> parallelTransformAsync(Color[][] in, UnaryOperator<Color> f) {
+        int height = in.length;
+        int width = height == 0 ? 0 : in[0].length;
+        return TiledTransformEngine.shared().transform(in, new Color[height][width], f);
     }
 
     public static void doInOrder(Runnable first, Runnable second) {
@@ -136,31 +153,17 @@ public class ProgrammingWithLambdas {
     }
 
     public static void doInOrderAsync(Runnable first, Runnable second, Consumer<Throwable> handler) {
-        Thread t = new Thread() {
-            public void run() {
-                try {
-                    first.run();
-                    second.run();
-                } catch (Throwable t) {
-                    handler.accept(t);
-                }
-            }
-        };
-        t.start();
+        AsyncSequencer.shared().doInOrderAsync(first, second)
+                .whenComplete((v, t) -> {
+                    if (t != null) handler.accept(AsyncSequencer.unwrap(t));
+                });
     }
 
     public static <T> void doInOrderAsync(Supplier<? extends T> first, Consumer<? super T> second, Consumer<? super Throwable> handler) {
-        Thread t = new Thread() {
-            public void run() {
-                try {
-                    T result = first.get();
-                    second.accept(result);
-                } catch (Throwable t) {
-                    handler.accept(t);
-                }
-            }
-        };
-        t.start();
+        AsyncSequencer.shared().doInOrderAsync(first, second)
+                .whenComplete((v, t) -> {
+                    if (t != null) handler.accept(AsyncSequencer.unwrap(t));
+                });
     }
 
     public static <T> Supplier<T> unchecked(Callable<T> f) {
@@ -195,6 +198,10 @@ public class ProgrammingWithLambdas {
         System.out.println(res);
         System.out.println();
 
+        try (AsyncLogger asyncLogger = new AsyncLogger(Logger.getGlobal(), 8192, AsyncLogger.OverflowPolicy.DROP)) {
+            asyncLogger.info(() -> "a: " + a + ", b: " + b + ", c: " + c);
+        }
+
         try {
             Image image = new Image("eiffel-tower.png");
             Image brighterImage = transform(image, Color::brighter);
@@ -209,13 +216,51 @@ public class ProgrammingWithLambdas {
                     .transform(Color::grayscale)
                     .toImage();
 
+            finalImage = toImage(PackedLatentImage.from(toArgb(image), (int) image.getWidth(), (int) image.getHeight())
+                    .transform(Argb.brighter())
+                    .transform(Argb.grayscale())
+                    .toArgb(), (int) image.getWidth(), (int) image.getHeight());
+
+            IntUnaryOperator brighterGrayscale = packed(compose(Color::brighter, Color::grayscale));
+            brighterGrayscale = ColorLuts.compile(brighterGrayscale, 2).orElse(brighterGrayscale);
+            finalImage = toImage(PackedLatentImage.from(toArgb(image), (int) image.getWidth(), (int) image.getHeight())
+                    .transform(brighterGrayscale)
+                    .toArgb(), (int) image.getWidth(), (int) image.getHeight());
+
+            finalImage = toImage(PackedLatentImage.from(toArgb(image), (int) image.getWidth(), (int) image.getHeight())
+                    .convolve(ConvolutionKernel.gaussianBlur())
+                    .transform(Argb.brighten(1.2))
+                    .convolve(ConvolutionKernel.sharpen())
+                    .toArgb(), (int) image.getWidth(), (int) image.getHeight());
+
         } catch (IllegalArgumentException e) {
 
         }
 
+        try {
+            Path rasterFile = Files.createTempFile("eiffel-tower", ".argb");
+            Path brightenedFile = Files.createTempFile("eiffel-tower-brightened", ".argb");
+            rasterFile.toFile().deleteOnExit();
+            brightenedFile.toFile().deleteOnExit();
+            try (MappedRaster raster = MappedRaster.copyOf(
+                         ImageIO.read(ProgrammingWithLambdas.class.getResource("eiffel-tower.png")), rasterFile);
+                 MappedRaster brightened = MappedRaster.create(brightenedFile, raster.getWidth(), raster.getHeight())) {
+                TiledTransformEngine.shared().transform(raster, brightened, Argb.brighten(1.2)).join();
+                brightened.force();
+            }
+
+        } catch (IOException e) {
+
+        }
+
         try {
             Supplier<String> sup = unchecked(() -> new String(Files.readAllBytes(Paths.get("/etc/passwd")), StandardCharsets.UTF_8));
 
+            Supplier<Stream<CharSequence>> lines = unchecked(() -> FileSource.open(Paths.get("/etc/passwd")).lines());
+            try (Stream<CharSequence> passwd = lines.get()) {
+                long accounts = passwd.filter(l -> l.length() > 0 && l.charAt(0) != '#').count();
+            }
+
         } catch (Exception e) {
 
         }
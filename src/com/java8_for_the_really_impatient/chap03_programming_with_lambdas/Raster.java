@@ -0,0 +1,14 @@
+package com.java8_for_the_really_impatient.chap03_programming_with_lambdas;
+
+/**
+ * A headless grid of packed ARGB pixels (see {@link Argb}) that is read and written in
+ * rectangular blocks, so implementations need not hold the whole image on-heap.
+ */
+public interface Raster {
+    int getWidth();
+    int getHeight();
+
+    void getPixels(int x, int y, int width, int height, int[] buffer, int offset, int scanlineStride);
+
+    void setPixels(int x, int y, int width, int height, int[] buffer, int offset, int scanlineStride);
+}
@@ -0,0 +1,135 @@
+package com.java8_for_the_really_impatient.chap03_programming_with_lambdas;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntUnaryOperator;
+import java.util.function.UnaryOperator;
+
+/**
+ * Runs per-pixel work over a fork-join pool.
+ *
+ * The image is split recursively, along its longer side, into roughly square tiles of
+ * at most {@code tilePixels} pixels; idle workers steal the larger, not-yet-split
+ * halves, so skewed tiles balance out. Tiles are walked row by row, which matches the
+ * {@code [y][x]} layout of the arrays and of packed rasters.
+ */
+public class TiledTransformEngine {
+
+    public static final int DEFAULT_TILE_PIXELS = 16 * 1024;
+
+    private static final TiledTransformEngine SHARED = new TiledTransformEngine(ForkJoinPool.commonPool(), DEFAULT_TILE_PIXELS);
+
+    @FunctionalInterface
+    public interface TileAction {
+        void apply(int fromX, int toX, int fromY, int toY);
+    }
+
+    private final ForkJoinPool pool;
+    private final int tilePixels;
+
+    public TiledTransformEngine(ForkJoinPool pool, int tilePixels) {
+        if (tilePixels < 1) {
+            throw new IllegalArgumentException("tilePixels must be positive: " + tilePixels);
+        }
+        this.pool = pool;
+        this.tilePixels = tilePixels;
+    }
+
+    public static TiledTransformEngine shared() {
+        return SHARED;
+    }
+
+    public ForkJoinPool getPool() { return pool; }
+    public int getTilePixels() { return tilePixels; }
+
+    public CompletableFuture<Void> forEachTile(int width, int height, TileAction action) {
+        return CompletableFuture.runAsync(() -> new TileTask(action, tilePixels, 0, width, 0, height).invoke(), pool);
+    }
+
+    public <T> CompletableFuture<T[][]> transform(T[][] in, T[][] out, UnaryOperator<T> f) {
+        int height = in.length;
+        int width = height == 0 ? 0 : in[0].length;
+        return forEachTile(width, height, (fromX, toX, fromY, toY) -> {
+            for (int y = fromY; y < toY; y++) {
+                T[] inRow = in[y];
+                T[] outRow = out[y];
+                for (int x = fromX; x < toX; x++) {
+                    outRow[x] = f.apply(inRow[x]);
+                }
+            }
+        }).thenApply(v -> out);
+    }
+
+    public CompletableFuture<int[]> transform(int[] in, int[] out, int width, IntUnaryOperator f) {
+        if (in.length != out.length || (width > 0 && in.length % width != 0)) {
+            throw new IllegalArgumentException("Rasters do not match a width of " + width);
+        }
+        int height = width == 0 ? 0 : in.length / width;
+        return forEachTile(width, height, (fromX, toX, fromY, toY) -> {
+            for (int y = fromY; y < toY; y++) {
+                int row = y * width;
+                for (int i = row + fromX; i < row + toX; i++) {
+                    out[i] = f.applyAsInt(in[i]);
+                }
+            }
+        }).thenApply(v -> out);
+    }
+
+    /**
+     * Streams {@code in} through {@code f} into {@code out} one tile at a time, so only a
+     * tile's worth of pixels per worker is ever on-heap.
+     */
+    public <R extends Raster> CompletableFuture<R> transform(Raster in, R out, IntUnaryOperator f) {
+        int width = in.getWidth();
+        int height = in.getHeight();
+        if (out.getWidth() != width || out.getHeight() != height) {
+            throw new IllegalArgumentException("Rasters differ in size");
+        }
+        return forEachTile(width, height, (fromX, toX, fromY, toY) -> {
+            int w = toX - fromX;
+            int h = toY - fromY;
+            int[] tile = new int[w * h];
+            in.getPixels(fromX, fromY, w, h, tile, 0, w);
+            for (int i = 0; i < tile.length; i++) {
+                tile[i] = f.applyAsInt(tile[i]);
+            }
+            out.setPixels(fromX, fromY, w, h, tile, 0, w);
+        }).thenApply(v -> out);
+    }
+
+    private static class TileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final TileAction action;
+        private final int tilePixels;
+        private final int fromX, toX, fromY, toY;
+
+        TileTask(TileAction action, int tilePixels, int fromX, int toX, int fromY, int toY) {
+            this.action = action;
+            this.tilePixels = tilePixels;
+            this.fromX = fromX;
+            this.toX = toX;
+            this.fromY = fromY;
+            this.toY = toY;
+        }
+
+        @Override
+        protected void compute() {
+            int rows = toY - fromY;
+            int columns = toX - fromX;
+            if (rows <= 0 || columns <= 0) return;
+            if ((long) rows * columns <= tilePixels) {
+                action.apply(fromX, toX, fromY, toY);
+            } else if (rows >= columns) {
+                int midY = fromY + rows / 2;
+                invokeAll(new TileTask(action, tilePixels, fromX, toX, fromY, midY),
+                        new TileTask(action, tilePixels, fromX, toX, midY, toY));
+            } else {
+                int midX = fromX + columns / 2;
+                invokeAll(new TileTask(action, tilePixels, fromX, midX, fromY, toY),
+                        new TileTask(action, tilePixels, midX, toX, fromY, toY));
+            }
+        }
+    }
+}
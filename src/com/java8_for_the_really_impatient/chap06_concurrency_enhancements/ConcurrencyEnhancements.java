@@ -1,35 +1,203 @@
 package com.java8_for_the_really_impatient.chap06_concurrency_enhancements;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAccumulator;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.StampedLock;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Created by sofia on 1/1/17.
  */
 public class ConcurrencyEnhancements {
 
-    private static class Vector {
+    /**
+     * A random-access list for read-mostly use. Reads are optimistic and take no lock
+     * unless a write overlaps them; writers never wait for optimistic readers.
+     */
+    public static class Vector<E> implements Iterable<E> {
+        private static final int DEFAULT_CAPACITY = 10;
+
         private int size;
-        private Object[] elements;
-        private StampedLock lock = new StampedLock();
+        private Object[] elements = new Object[DEFAULT_CAPACITY];
+        private final StampedLock lock = new StampedLock();
 
-        public Object get(int n) {
+        /**
+         * Returns null if {@code n} is not below the size.
+         */
+        @SuppressWarnings("unchecked")
+        public E get(int n) {
+            if (n < 0) throw new IndexOutOfBoundsException("Index: " + n);
             long stamp = lock.tryOptimisticRead();
             Object[] currentElements = elements;
             int currentSize = size;
+            // the fields may come from different writes; only a validated read counts
+            Object element = n < currentSize && n < currentElements.length ? currentElements[n] : null;
 
             if (!lock.validate(stamp)) { // someone else had a write lock
                 stamp = lock.readLock(); // get a pessimistic lock
-                currentElements = elements;
-                currentSize = size;
-                lock.unlockRead(stamp);
+                try {
+                    element = n < size ? elements[n] : null;
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+
+            return (E) element;
+        }
+
+        public int size() {
+            long stamp = lock.tryOptimisticRead();
+            int currentSize = size;
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    currentSize = size;
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return currentSize;
+        }
+
+        public void add(E element) {
+            long stamp = lock.writeLock();
+            try {
+                append(element);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        public E set(int n, E element) {
+            long stamp = lock.writeLock();
+            try {
+                checkIndex(n);
+                Object old = elements[n];
+                elements[n] = element;
+                return (E) old;
+            } finally {
+                lock.unlockWrite(stamp);
             }
+        }
 
-            return n < currentSize ? currentElements[n] : null;
+        /**
+         * Adds {@code element} unless it is already present. The search runs under a
+         * read lock, which is converted to a write lock only if the element is missing.
+         */
+        public boolean addIfAbsent(E element) {
+            long stamp = lock.readLock();
+            try {
+                while (true) {
+                    if (indexOf(element) >= 0) return false;
+                    long writeStamp = lock.tryConvertToWriteLock(stamp);
+                    if (writeStamp != 0) {
+                        stamp = writeStamp;
+                        append(element);
+                        return true;
+                    }
+                    lock.unlockRead(stamp);
+                    stamp = lock.writeLock(); // search again, now exclusively
+                }
+            } finally {
+                lock.unlock(stamp);
+            }
+        }
+
+        /**
+         * Replaces element {@code n} with {@code f} of it, atomically. {@code f} runs
+         * under a read lock that is converted to a write lock when the value changes.
+         */
+        @SuppressWarnings("unchecked")
+        public E updateAndGet(int n, UnaryOperator<E> f) {
+            long stamp = lock.readLock();
+            try {
+                while (true) {
+                    checkIndex(n);
+                    E current = (E) elements[n];
+                    E next = f.apply(current);
+                    if (next == current) return current;
+                    long writeStamp = lock.tryConvertToWriteLock(stamp);
+                    if (writeStamp != 0) {
+                        stamp = writeStamp;
+                        elements[n] = next;
+                        return next;
+                    }
+                    lock.unlockRead(stamp);
+                    stamp = lock.writeLock();
+                }
+            } finally {
+                lock.unlock(stamp);
+            }
+        }
+
+        /** A consistent copy of the elements. */
+        public Object[] toArray() {
+            long stamp = lock.tryOptimisticRead();
+            Object[] currentElements = elements;
+            int currentSize = size;
+            Object[] copy = currentSize <= currentElements.length ? Arrays.copyOf(currentElements, currentSize) : null;
+            if (copy == null || !lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    copy = Arrays.copyOf(elements, size);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return copy;
+        }
+
+        /**
+         * Iterates over a snapshot taken now; later writes are not seen, and the
+         * iterator does not support {@code remove}.
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public Iterator<E> iterator() {
+            return (Iterator<E>) Collections.unmodifiableList(Arrays.asList(toArray())).iterator();
+        }
+
+        public Stream<E> stream() {
+            return StreamSupport.stream(spliterator(), false);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Spliterator<E> spliterator() {
+            return (Spliterator<E>) Spliterators.spliterator(toArray(), Spliterator.ORDERED | Spliterator.IMMUTABLE);
+        }
+
+        private void append(E element) {
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, elements.length + (elements.length >> 1) + 1);
+            }
+            elements[size++] = element;
+        }
+
+        private int indexOf(Object element) {
+            for (int i = 0; i < size; i++) {
+                if (Objects.equals(element, elements[i])) return i;
+            }
+            return -1;
+        }
+
+        private void checkIndex(int n) {
+            if (n < 0 || n >= size) {
+                throw new IndexOutOfBoundsException("Index: " + n + ", Size: " + size);
+            }
         }
     }
 
@@ -67,6 +235,14 @@ public class ConcurrencyEnhancements {
 //        });
         long total = adder.sum();
 
+        Vector<String> vector = new Vector<>();
+        vector.add("Java");
+        vector.addIfAbsent("Java");
+        vector.updateAndGet(0, String::toUpperCase);
+        for (String element : vector) {
+            System.out.println(element);
+        }
+
         LongAccumulator accumulator = new LongAccumulator(Long::sum, 0);
         long value = 10L;
         accumulator.accumulate(value);
@@ -110,6 +286,11 @@ public class ConcurrencyEnhancements {
         int threshold = 10; // threshold for processing by one thread
         String result = map4.search(threshold, (k, v) -> v > 1000 ? k : null);
 
+        HeavyHitters<String> hotWords = new HeavyHitters<>(1024);
+        hotWords.add(word);
+        List<HeavyHitters.Entry<String>> frequentWords = hotWords.search(1000);
+        List<HeavyHitters.Entry<String>> top10Words = hotWords.topK(10);
+
         map4.forEach(threshold,
                 (k, v) -> System.out.println(k + " -> " + v));
 
@@ -141,6 +322,12 @@ public class ConcurrencyEnhancements {
         Set<String> words2 = map4.keySet(1L);
         words2.add("Java");
 
+        ConcurrentCounterMap<String> counts = new ConcurrentCounterMap<>();
+        counts.increment(word);
+        counts.addAndGet(word, 2);
+        counts.forEach(threshold, (k, v) -> System.out.println(k + " -> " + v));
+        long totalCount = counts.sum(threshold);
+
 
 
 
@@ -0,0 +1,261 @@
+package com.java8_for_the_really_impatient.chap06_concurrency_enhancements;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * A concurrent map from keys to {@code long} counts, for word counting without a
+ * {@code LongAdder} (or boxed {@code Long}) and a map node per key.
+ *
+ * Keys live in open-addressing tables, one per segment, with the counts in a parallel
+ * {@link AtomicLongArray}; adding to an existing key is a CAS on its slot. Only
+ * inserting a new key locks its segment. A key whose slot keeps losing CAS races gets
+ * a {@code LongAdder} cell, like a {@code ConcurrentHashMap<String, LongAdder>} entry,
+ * and from then on is counted there, so the few very frequent words of a text do not
+ * serialize all threads on one cache line. A key's count is its slot plus its cell, if
+ * any; the cell belongs to the key, not to a table, so it survives resizes. Keys are
+ * never removed.
+ *
+ * Reads are weakly consistent: while a segment grows, counts being moved to the new
+ * table may briefly be missing from {@link #get} and the bulk operations.
+ */
+public class ConcurrentCounterMap<K> {
+
+    private static final int DEFAULT_SEGMENTS = 64;
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+    private static final int HOT_AFTER_FAILED_CASES = 2;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final ConcurrentHashMap<Object, LongAdder> hotCells = new ConcurrentHashMap<>();
+
+    public ConcurrentCounterMap() {
+        this(DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * @param segments rounded up to a power of two; bounds how many threads can insert
+     *                 new keys at the same time
+     */
+    public ConcurrentCounterMap(int segments) {
+        if (segments < 1 || segments > 1 << 16) {
+            throw new IllegalArgumentException("Invalid segment count: " + segments);
+        }
+        int count = segments == 1 ? 1 : Integer.highestOneBit(segments - 1) << 1;
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            this.segments[i] = new Segment();
+        }
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(count);
+    }
+
+    public void increment(K key) {
+        add(key, 1);
+    }
+
+    public long addAndGet(K key, long delta) {
+        return add(key, delta);
+    }
+
+    /** The count of {@code key}, or 0 if it was never added. */
+    public long get(Object key) {
+        int h = hash(key);
+        Table table = segmentFor(h).table;
+        int slot = table.find(key, h);
+        if (slot < 0) return 0;
+        return table.values.get(slot) + hotSum(key);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.count;
+        }
+        return size;
+    }
+
+    /**
+     * Like {@code ConcurrentHashMap.forEach(parallelismThreshold, action)}: runs in
+     * parallel, by segment, if the map has at least {@code parallelismThreshold} keys.
+     */
+    public void forEach(long parallelismThreshold, ObjLongConsumer<? super K> action) {
+        segmentIndexes(parallelismThreshold).forEach(s -> forEachInSegment(segments[s], action));
+    }
+
+    @FunctionalInterface
+    public interface ToLongKeyValueFunction<K> {
+        long apply(K key, long value);
+    }
+
+    /**
+     * Like {@code ConcurrentHashMap.reduceToLong}: combines {@code transformer} of every
+     * entry with {@code reducer}. As there, {@code basis} must be an identity of
+     * {@code reducer} (such as 0 for a sum), since each segment starts from it.
+     */
+    public long reduceToLong(long parallelismThreshold, ToLongKeyValueFunction<? super K> transformer,
+                             long basis, LongBinaryOperator reducer) {
+        return segmentIndexes(parallelismThreshold)
+                .mapToLong(s -> {
+                    long[] result = { basis };
+                    forEachInSegment(segments[s], (k, v) -> result[0] = reducer.applyAsLong(result[0], transformer.apply(k, v)));
+                    return result[0];
+                })
+                .reduce(basis, reducer);
+    }
+
+    public long sum(long parallelismThreshold) {
+        return reduceToLong(parallelismThreshold, (k, v) -> v, 0, Long::sum);
+    }
+
+    private long add(K key, long delta) {
+        int h = hash(key);
+        Segment segment = segmentFor(h);
+        int failures = 0;
+        while (true) {
+            Table table = segment.table;
+            int slot = table.find(key, h);
+            if (slot < 0) {
+                segment.insert(key, h);
+                continue;
+            }
+            if (table.hot[slot]) {
+                LongAdder cell = hotCells.get(key);
+                if (cell != null) {
+                    cell.add(delta);
+                    return get(key);
+                }
+            }
+            long value = table.values.get(slot);
+            if (table.values.compareAndSet(slot, value, value + delta)) {
+                if (segment.table != table) {
+                    moveResidual(key, table, slot);
+                }
+                return value + delta + hotSum(key);
+            }
+            if (++failures >= HOT_AFTER_FAILED_CASES) {
+                hotCells.computeIfAbsent(key, k -> new LongAdder());
+                table.hot[slot] = true;
+            }
+        }
+    }
+
+    /**
+     * The segment grew after we added to its old table. The resize takes each old
+     * count with {@code getAndSet(0)}, so whatever is left in the old slot was added
+     * after that, and whoever takes it carries it over.
+     */
+    private void moveResidual(K key, Table old, int slot) {
+        long residual = old.values.getAndSet(slot, 0);
+        if (residual != 0) {
+            add(key, residual);
+        }
+    }
+
+    private long hotSum(Object key) {
+        LongAdder cell = hotCells.get(key);
+        return cell == null ? 0 : cell.sum();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void forEachInSegment(Segment segment, ObjLongConsumer<? super K> action) {
+        Table table = segment.table;
+        for (int i = 0; i < table.capacity; i++) {
+            Object key = table.keys.get(i);
+            if (key == null) continue;
+            action.accept((K) key, table.values.get(i) + hotSum(key));
+        }
+    }
+
+    private IntStream segmentIndexes(long parallelismThreshold) {
+        IntStream indexes = IntStream.range(0, segments.length);
+        return size() >= parallelismThreshold ? indexes.parallel() : indexes;
+    }
+
+    private Segment segmentFor(int h) {
+        return segments.length == 1 ? segments[0] : segments[h >>> segmentShift];
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static class Table {
+        final int capacity;
+        final int mask;
+        final AtomicReferenceArray<Object> keys;
+        final AtomicLongArray values;
+        // only tells adders to go to the key's cell; reads always add the cell. Plain
+        // writes: an adder that misses the flag just counts in the slot.
+        final boolean[] hot;
+
+        Table(int capacity) {
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+            this.keys = new AtomicReferenceArray<>(capacity);
+            this.values = new AtomicLongArray(capacity);
+            this.hot = new boolean[capacity];
+        }
+
+        int find(Object key, int h) {
+            for (int i = h & mask; ; i = (i + 1) & mask) {
+                Object k = keys.get(i);
+                if (k == null) return -1;
+                if (k.equals(key)) return i;
+            }
+        }
+
+        int claim(Object key, int h) {
+            int i = h & mask;
+            while (keys.get(i) != null) {
+                i = (i + 1) & mask;
+            }
+            keys.set(i, key);
+            return i;
+        }
+    }
+
+    private static class Segment {
+        volatile Table table = new Table(INITIAL_SEGMENT_CAPACITY);
+        volatile int count;
+
+        synchronized void insert(Object key, int h) {
+            if (table.find(key, h) >= 0) return;
+            if (count + 1 > table.capacity / 2) {
+                grow();
+            }
+            table.claim(key, h);
+            count++;
+        }
+
+        /**
+         * Publishes the new table before moving any count, so an adder that still
+         * hits the old table afterwards sees the change and moves its residue.
+         */
+        private void grow() {
+            Table old = table;
+            Table grown = new Table(old.capacity * 2);
+            int[] moved = new int[old.capacity];
+            for (int i = 0; i < old.capacity; i++) {
+                Object key = old.keys.get(i);
+                if (key == null) continue;
+                int j = grown.claim(key, hash(key));
+                grown.hot[j] = old.hot[i];
+                moved[i] = j;
+            }
+            table = grown;
+            for (int i = 0; i < old.capacity; i++) {
+                if (old.keys.get(i) == null) continue;
+                long value = old.values.getAndSet(i, 0);
+                if (value != 0) {
+                    grown.values.getAndAdd(moved[i], value);
+                }
+            }
+        }
+    }
+}
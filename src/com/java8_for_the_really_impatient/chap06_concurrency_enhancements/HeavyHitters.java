@@ -0,0 +1,245 @@
+package com.java8_for_the_really_impatient.chap06_concurrency_enhancements;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The most frequent keys of a stream of updates, in fixed memory: the Space-Saving
+ * algorithm, instead of an exact counter per key that is then scanned with
+ * {@code map.search(threshold, (k, v) -> v > 1000 ? k : null)}.
+ *
+ * Keys are split by hash into stripes, each with its own lock and its own
+ * {@code capacity / stripes} counters, so threads updating different stripes do not
+ * contend. When a stripe is full, a new key takes over its smallest counter and
+ * inherits that count as its error. Hence for every tracked key
+ * {@code count - error <= true count <= count}. Every key whose true count exceeds
+ * {@link #maxError()} is tracked.
+ *
+ * Queries lock one stripe at a time, so they can run while updates continue; each
+ * stripe's part of the answer is consistent, and the whole is as of roughly now.
+ */
+public class HeavyHitters<K> {
+
+    private static final int DEFAULT_STRIPES = 16;
+
+    /** A tracked key with its estimated count and the most that count may overstate. */
+    public static final class Entry<K> {
+        private final K key;
+        private final long count;
+        private final long error;
+
+        Entry(K key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public K getKey() { return key; }
+        public long getCount() { return count; }
+        public long getError() { return error; }
+
+        /** The count this key certainly reached. */
+        public long getGuaranteedCount() { return count - error; }
+
+        @Override
+        public String toString() {
+            return key + "=" + count + " (+/-" + error + ")";
+        }
+    }
+
+    private final Stripe<K>[] stripes;
+
+    public HeavyHitters(int capacity) {
+        this(capacity, DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param capacity the total number of counters, split among the stripes as evenly
+     *                 as possible
+     * @param stripes  rounded up to a power of two
+     */
+    @SuppressWarnings("unchecked")
+    public HeavyHitters(int capacity, int stripes) {
+        if (stripes < 1 || stripes > 1 << 16) {
+            throw new IllegalArgumentException("Invalid stripe count: " + stripes);
+        }
+        int count = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        if (capacity < count) {
+            throw new IllegalArgumentException("capacity must be at least the stripe count: " + capacity);
+        }
+        this.stripes = (Stripe<K>[]) new Stripe<?>[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe<>(capacity / count + (i < capacity % count ? 1 : 0));
+        }
+    }
+
+    public void add(K key) {
+        add(key, 1);
+    }
+
+    public void add(K key, long weight) {
+        if (key == null) throw new NullPointerException("null key");
+        if (weight < 1) {
+            throw new IllegalArgumentException("weight must be positive: " + weight);
+        }
+        stripeFor(key).add(key, weight);
+    }
+
+    /** The estimate for {@code key}, or null if it is not tracked. */
+    public Entry<K> get(K key) {
+        return stripeFor(key).get(key);
+    }
+
+    /** The {@code k} tracked keys with the highest counts, highest first. */
+    public List<Entry<K>> topK(int k) {
+        return entries().stream()
+                .sorted(Comparator.comparingLong((Entry<K> e) -> e.count).reversed())
+                .limit(k)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The tracked keys whose count exceeds {@code threshold}, highest first. Those whose
+     * guaranteed count also does are certain, the others may be false positives. If
+     * {@code threshold >= maxError()}, every key whose true count exceeds it is included;
+     * below that, a key that was evicted may be missing.
+     */
+    public List<Entry<K>> search(long threshold) {
+        return entries().stream()
+                .filter(e -> e.count > threshold)
+                .sorted(Comparator.comparingLong((Entry<K> e) -> e.count).reversed())
+                .collect(Collectors.toList());
+    }
+
+    /** The total weight added so far. */
+    public long total() {
+        long total = 0;
+        for (Stripe<K> stripe : stripes) {
+            total += stripe.total();
+        }
+        return total;
+    }
+
+    /**
+     * The largest error any estimate can have right now: in each stripe, its total
+     * weight divided by its number of counters.
+     */
+    public long maxError() {
+        long max = 0;
+        for (Stripe<K> stripe : stripes) {
+            max = Math.max(max, stripe.total() / stripe.capacity);
+        }
+        return max;
+    }
+
+    private List<Entry<K>> entries() {
+        List<Entry<K>> entries = new ArrayList<>();
+        for (Stripe<K> stripe : stripes) {
+            stripe.snapshot(entries);
+        }
+        return entries;
+    }
+
+    private Stripe<K> stripeFor(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    private static final class Counter<K> {
+        K key;
+        long count;
+        long error;
+        int index;
+    }
+
+    /**
+     * One Space-Saving summary: the counters in a map by key and in a min-heap by count.
+     */
+    private static final class Stripe<K> {
+        final int capacity;
+        private final Map<K, Counter<K>> byKey;
+        private final Counter<K>[] heap;
+        private int size;
+        private long total;
+
+        @SuppressWarnings("unchecked")
+        Stripe(int capacity) {
+            this.capacity = capacity;
+            this.byKey = new HashMap<>(capacity * 2);
+            this.heap = (Counter<K>[]) new Counter<?>[capacity];
+        }
+
+        synchronized void add(K key, long weight) {
+            total += weight;
+            Counter<K> counter = byKey.get(key);
+            if (counter == null) {
+                if (size < capacity) {
+                    counter = new Counter<>();
+                    counter.key = key;
+                    counter.count = weight;
+                    byKey.put(key, counter);
+                    siftUp(counter, size++);
+                    return;
+                } else {
+                    counter = heap[0];
+                    byKey.remove(counter.key);
+                    counter.error = counter.count;
+                }
+                counter.key = key;
+                byKey.put(key, counter);
+            }
+            counter.count += weight;
+            siftDown(counter.index);
+        }
+
+        synchronized Entry<K> get(K key) {
+            Counter<K> counter = byKey.get(key);
+            return counter == null ? null : new Entry<>(counter.key, counter.count, counter.error);
+        }
+
+        synchronized long total() {
+            return total;
+        }
+
+        synchronized void snapshot(List<Entry<K>> entries) {
+            for (int i = 0; i < size; i++) {
+                entries.add(new Entry<>(heap[i].key, heap[i].count, heap[i].error));
+            }
+        }
+
+        private void siftUp(Counter<K> counter, int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent].count <= counter.count) break;
+                heap[i] = heap[parent];
+                heap[i].index = i;
+                i = parent;
+            }
+            heap[i] = counter;
+            counter.index = i;
+        }
+
+        // counts only grow, so an existing counter only ever moves down
+        private void siftDown(int i) {
+            Counter<K> counter = heap[i];
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                int right = child + 1;
+                if (right < size && heap[right].count < heap[child].count) {
+                    child = right;
+                }
+                if (counter.count <= heap[child].count) break;
+                heap[i] = heap[child];
+                heap[i].index = i;
+                i = child;
+            }
+            heap[i] = counter;
+            counter.index = i;
+        }
+    }
+}